@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.dao.dto.event.EventDto;
 import ru.yandex.practicum.filmorate.service.EventService;
@@ -21,8 +23,35 @@ public class FeedController {
 
 
     @GetMapping
-    public List<EventDto> getUserFeed(@PathVariable long userId) {
+    public List<EventDto> getUserFeed(
+            @PathVariable long userId,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit,
+            HttpServletResponse response
+    ) {
         validation.validateUserExists(userId);
-        return eventService.getUserFeed(userId);
+        int pageSize = validation.validatePageLimit(limit);
+        List<EventDto> events = eventService.getUserFeed(userId, since, before, pageSize);
+        if (since == null && before != null) {
+            PageCursor.writePrevious(response, events, pageSize, EventDto::getEventId);
+        } else {
+            PageCursor.writeNext(response, events, pageSize, EventDto::getEventId);
+        }
+        return events;
+    }
+
+    @GetMapping("/friends")
+    public List<EventDto> getFriendsFeed(
+            @PathVariable long userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit,
+            HttpServletResponse response
+    ) {
+        validation.validateUserExists(userId);
+        int pageSize = validation.validatePageLimit(limit);
+        List<EventDto> events = eventService.getFriendsFeed(userId, before, pageSize);
+        PageCursor.writePrevious(response, events, pageSize, EventDto::getEventId);
+        return events;
     }
 }
@@ -1,18 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmBatchResult;
 import ru.yandex.practicum.filmorate.dao.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.dao.dto.film.NewFilmRequest;
 import ru.yandex.practicum.filmorate.dao.dto.film.UpdateFilmRequest;
+import ru.yandex.practicum.filmorate.service.FilmExportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -26,6 +32,7 @@ import java.util.stream.Stream;
 public class FilmController {
 
     private final FilmService filmService;
+    private final FilmExportService filmExportService;
     private final Validation validation;
 
     @PostMapping
@@ -40,6 +47,16 @@ public class FilmController {
         return createdFilm;
     }
 
+    @PostMapping("/batch")
+    public FilmBatchResult createBatch(@RequestBody List<NewFilmRequest> requests) {
+        log.info("Фильм: запрос на пакетное создание {} фильмов", requests.size());
+        validation.validateBatchSize(requests.size());
+        FilmBatchResult result = filmService.createBatch(requests);
+        log.info("Пакетное создание: создано {}, отклонено {}, не сохранено {}",
+                result.getCreated(), result.getRejected(), result.getFailed());
+        return result;
+    }
+
     @PutMapping
     public FilmDto update(@Valid @RequestBody UpdateFilmRequest request) {
         log.info("Фильм: запрос на обновление {}", request);
@@ -53,12 +70,30 @@ public class FilmController {
 
 
     @GetMapping
-    public Collection<FilmDto> getAll() {
-        Collection<FilmDto> films = filmService.getAll();
-        log.info("Фильм: запрос на получение всех ({} шт.)", films.size());
+    public Collection<FilmDto> getAll(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            HttpServletResponse response
+    ) {
+        int pageSize = validation.validatePageLimit(limit);
+        List<FilmDto> films = filmService.getAll(afterId, pageSize);
+        PageCursor.writeNext(response, films, pageSize, FilmDto::getId);
+        log.info("Фильм: запрос на получение всех после id={} ({} шт.)", afterId, films.size());
         return films;
     }
 
+    @GetMapping("/export")
+    public StreamingResponseBody export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response
+    ) {
+        boolean ndjson = validation.validateExportFormat(format);
+        log.info("Фильм: запрос на выгрузку каталога в формате {}", format);
+        response.setContentType(ndjson ? "application/x-ndjson" : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return out -> filmExportService.export(out, ndjson);
+    }
+
     @GetMapping("/{id}")
     public FilmDto getById(@PathVariable long id) {
         log.info("Фильм: запрос на получение по id={}", id);
@@ -114,7 +149,11 @@ public class FilmController {
     @GetMapping("/search")
     public List<FilmDto> searchFilms(
             @RequestParam String query,
-            @RequestParam(defaultValue = "title,director,description") String by) {
+            @RequestParam(defaultValue = "title,director,description") String by,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Long afterLikes,
+            @RequestParam(required = false) Integer limit,
+            HttpServletResponse response) {
         log.info("Поиск фильмов по запросу: '{}', параметры поиска: {}", query, by);
 
         Set<String> searchBy = Stream.of(by.split(","))
@@ -123,8 +162,13 @@ public class FilmController {
                 .collect(Collectors.toSet());
 
         validation.validateSearchParameters(searchBy);
-        List<FilmDto> results = filmService.searchFilms(query, searchBy);
-        log.info("Найдено {} фильмов по запросу '{}'", results.size(), query);
-        return results;
+        validation.validateSearchCursor(afterLikes, afterId);
+        int pageSize = validation.validatePageLimit(limit);
+        FilmService.SearchPage page = filmService.searchFilms(query, searchBy, afterLikes, afterId, pageSize);
+        if (page.next() != null) {
+            PageCursor.writeNext(response, page.next());
+        }
+        log.info("Найдено {} фильмов по запросу '{}'", page.films().size(), query);
+        return page.films();
     }
 }
\ No newline at end of file
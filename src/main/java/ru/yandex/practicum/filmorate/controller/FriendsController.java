@@ -5,10 +5,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dao.dto.batch.BatchImportResult;
 import ru.yandex.practicum.filmorate.dao.dto.friend.FriendDto;
+import ru.yandex.practicum.filmorate.dao.dto.friend.NewFriendRequest;
 import ru.yandex.practicum.filmorate.dao.dto.friend.UpdateFriendRequest;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.service.FriendsService;
+import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.util.List;
 
@@ -18,6 +21,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FriendsController {
     private final FriendsService friendsService;
+    private final Validation validation;
 
     @PutMapping("/{id}/friends/{friendId}")
     @ResponseStatus(HttpStatus.OK)
@@ -28,6 +32,13 @@ public class FriendsController {
         return friendDto;
     }
 
+    @PostMapping("/friends/batch")
+    public BatchImportResult importFriends(@RequestBody List<NewFriendRequest> requests) {
+        log.info("Пользователь: запрос на импорт {} связей дружбы", requests.size());
+        validation.validateBatchSize(requests.size());
+        return friendsService.importFriends(requests);
+    }
+
     @PutMapping("/friends")
     @ResponseStatus(HttpStatus.OK)
     public FriendDto updateStatus(@Valid @RequestBody UpdateFriendRequest request) {
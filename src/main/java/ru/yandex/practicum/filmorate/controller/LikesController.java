@@ -5,9 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dao.dto.batch.BatchImportResult;
 import ru.yandex.practicum.filmorate.dao.dto.like.LikeDto;
+import ru.yandex.practicum.filmorate.dao.dto.like.NewLikeRequest;
 import ru.yandex.practicum.filmorate.service.LikeService;
+import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.util.List;
 import java.util.Set;
 
 @Slf4j
@@ -16,6 +20,7 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class LikesController {
     private final LikeService likeService;
+    private final Validation validation;
 
     @PutMapping("/{id}/like/{userId}")
     @ResponseStatus(HttpStatus.OK)
@@ -26,6 +31,13 @@ public class LikesController {
 
     }
 
+    @PostMapping("/likes/batch")
+    public BatchImportResult importLikes(@RequestBody List<NewLikeRequest> requests) {
+        log.info("Фильм: запрос на импорт {} лайков", requests.size());
+        validation.validateBatchSize(requests.size());
+        return likeService.importLikes(requests);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public void removeLike(@PathVariable long id, @PathVariable long userId) {
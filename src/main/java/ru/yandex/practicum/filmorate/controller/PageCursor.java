@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Курсор постраничной выдачи: если страница заполнена целиком, в заголовке отдаём id последнего элемента,
+// клиент передаёт его в afterId следующего запроса. При листании назад - id первого элемента.
+// Выдача по популярности дополнительно отдаёт число лайков последнего фильма для afterLikes
+final class PageCursor {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NEXT_CURSOR_LIKES_HEADER = "X-Next-Cursor-Likes";
+    static final String PREVIOUS_CURSOR_HEADER = "X-Prev-Cursor";
+
+    private PageCursor() {
+    }
+
+    static <T> void writeNext(HttpServletResponse response, List<T> page, int limit, ToLongFunction<T> idOf) {
+        if (!page.isEmpty() && page.size() >= limit) {
+            response.setHeader(NEXT_CURSOR_HEADER, String.valueOf(idOf.applyAsLong(page.get(page.size() - 1))));
+        }
+    }
+
+    static void writeNext(HttpServletResponse response, FilmRank next) {
+        response.setHeader(NEXT_CURSOR_HEADER, String.valueOf(next.filmId()));
+        response.setHeader(NEXT_CURSOR_LIKES_HEADER, String.valueOf(next.likes()));
+    }
+
+    static <T> void writePrevious(HttpServletResponse response, List<T> page, int limit, ToLongFunction<T> idOf) {
+        if (!page.isEmpty() && page.size() >= limit) {
+            response.setHeader(PREVIOUS_CURSOR_HEADER, String.valueOf(idOf.applyAsLong(page.get(0))));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,8 +14,10 @@ import ru.yandex.practicum.filmorate.dao.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -25,6 +28,7 @@ import java.util.Collection;
 public class UserController {
     private final UserService userService;
     private final FilmService filmService;
+    private final Validation validation;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -57,10 +61,16 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<UserDto> getAll() {
-
-        log.info("Пользователь: запрос на получение всех пользователей)");
-        return userService.getAll();
+    public Collection<UserDto> getAll(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            HttpServletResponse response
+    ) {
+        log.info("Пользователь: запрос на получение всех пользователей после id={}", afterId);
+        int pageSize = validation.validatePageLimit(limit);
+        List<UserDto> users = userService.getAll(afterId, pageSize);
+        PageCursor.writeNext(response, users, pageSize, UserDto::getId);
+        return users;
     }
 
     @GetMapping("/{id}")
@@ -72,9 +82,15 @@ public class UserController {
     }
 
     @GetMapping("/{id}/recommendations")
-    public Collection<FilmDto> getRecommendations(@PathVariable long id) {
-        log.info("Пользователь: запрос на получение рекомендации по id={}", id);
-        Collection<FilmDto> recommendations = filmService.getRecommendations(id);
+    public Collection<FilmDto> getRecommendations(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "nearest") String mode,
+            @RequestParam(defaultValue = "20") int k,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "jaccard") String metric
+    ) {
+        log.info("Пользователь: запрос на получение рекомендации по id={}, mode={}", id, mode);
+        Collection<FilmDto> recommendations = filmService.getRecommendations(id, mode, k, limit, metric);
         log.info("Фильм: запрос на получение всех рекомендаций");
         return recommendations;
     }
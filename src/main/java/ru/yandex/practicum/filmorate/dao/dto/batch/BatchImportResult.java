@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dao.dto.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// accepted - записано, duplicate - уже было в БД или повторяется в запросе,
+// rejected - не прошло проверку (нет id, несуществующий пользователь или фильм)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchImportResult {
+    private int accepted;
+    private int duplicate;
+    private int rejected;
+}
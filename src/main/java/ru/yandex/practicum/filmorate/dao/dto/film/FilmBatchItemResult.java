@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.dao.dto.film;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.model.enums.BatchItemStatus;
+
+// Результат по одному фильму пакета: index - позиция в запросе, id - только у созданных
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmBatchItemResult {
+    private int index;
+    private Long id;
+    private BatchItemStatus status;
+    private String error;
+}
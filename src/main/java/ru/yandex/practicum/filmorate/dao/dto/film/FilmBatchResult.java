@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dao.dto.film;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FilmBatchResult {
+    private int created;
+    private int rejected;
+    private int failed;
+    private List<FilmBatchItemResult> items;
+}
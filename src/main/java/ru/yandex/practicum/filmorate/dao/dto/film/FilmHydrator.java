@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.dao.dto.film;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaDto;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.DirectorCache;
+import ru.yandex.practicum.filmorate.service.ReferenceDataCache;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class FilmHydrator {
+    private final FilmMapper filmMapper;
+    private final GenreRepository genreRepository;
+    private final LikeRepository likeRepository;
+    private final DirectorCache directorCache;
+    private final ReferenceDataCache referenceDataCache;
+
+    public FilmDto hydrate(Film film) {
+        return hydrate(List.of(film)).get(0);
+    }
+
+    // Фильм, записанный в текущей транзакции: кэш режиссёров обновится только после commit,
+    // поэтому режиссёры берутся из самого фильма
+    public FilmDto hydrateWritten(Film film) {
+        Set<Long> directorIds = film.getDirectors() != null ? film.getDirectors() : Set.of();
+        return hydrate(List.of(film), Map.of(film.getId(), directorCache.findDirectors(directorIds))).get(0);
+    }
+
+    public List<FilmDto> hydrate(Collection<Film> films) {
+        return hydrate(films, null);
+    }
+
+    private List<FilmDto> hydrate(Collection<Film> films, Map<Long, List<Director>> writtenDirectors) {
+        if (films.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> filmIds = films.stream()
+                .map(Film::getId)
+                .distinct()
+                .toList();
+
+        // Каждая связь загружается одним запросом на весь список фильмов, рейтинг MPA и режиссёры - из кэшей в памяти
+        Map<Long, Set<Genre>> genresByFilm = genreRepository.findGenresByFilmIds(filmIds);
+        Map<Long, Set<Long>> likesByFilm = likeRepository.findUserIdsByFilmIds(filmIds);
+        Map<Long, List<Director>> directorsByFilm = writtenDirectors != null
+                ? writtenDirectors
+                : directorCache.findDirectorsByFilmIds(filmIds);
+
+        List<FilmDto> result = new ArrayList<>(films.size());
+        for (Film film : films) {
+            MpaDto mpa = referenceDataCache.findMpa(film.getMpa())
+                    .orElseThrow(() -> new NotFoundException("Рейтинг не найден с ID: " + film.getMpa()));
+            Set<Genre> genres = genresByFilm.getOrDefault(film.getId(), new LinkedHashSet<>());
+            Set<Director> directors = new LinkedHashSet<>(directorsByFilm.getOrDefault(film.getId(), List.of()));
+
+            film.setGenres(genres.stream().map(Genre::getId).collect(Collectors.toSet()));
+            film.setLikes(likesByFilm.getOrDefault(film.getId(), new HashSet<>()));
+            film.setDirectors(directors.stream().map(Director::getId).collect(Collectors.toSet()));
+
+            result.add(filmMapper.mapToFilmDto(film, mpa, genres, directors));
+        }
+        return result;
+    }
+}
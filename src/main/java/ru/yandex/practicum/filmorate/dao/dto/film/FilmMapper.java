@@ -1,26 +1,17 @@
 package ru.yandex.practicum.filmorate.dao.dto.film;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaDto;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.service.GenreService;
-import ru.yandex.practicum.filmorate.service.MpaService;
 
 import java.time.LocalDate;
 import java.util.*;
 
 @Component
-@RequiredArgsConstructor
 public final class FilmMapper {
 
-    private final MpaService mpaService;
-    private final GenreService genreService;
-    private final DirectorRepository directorRepository;
-
-
     public Film mapToFilm(NewFilmRequest request) {
         Film film = new Film();
         film.setName(request.getName());
@@ -33,19 +24,15 @@ public final class FilmMapper {
         return film;
     }
 
-    public FilmDto mapToFilmDto(Film film) {
+    public FilmDto mapToFilmDto(Film film, MpaDto mpa, Set<Genre> genres, Set<Director> directors) {
         FilmDto dto = new FilmDto();
         dto.setId(film.getId());
         dto.setName(film.getName());
         dto.setDescription(film.getDescription());
         dto.setReleaseDate(film.getReleaseDate());
         dto.setDuration(film.getDuration());
-        dto.setMpa(mpaService.getMpaById(film.getMpa()));
-
-        Set<Genre> genres = genreService.getGenresByFilmId(film.getId());
+        dto.setMpa(mpa);
         dto.setGenres(genres);
-
-        Set<Director> directors = new HashSet<>(directorRepository.findDirectorsByFilmId(film.getId()));
         dto.setDirectors(directors);
         dto.setLikes(film.getLikes());
         dto.setCreationDate(LocalDate.now());
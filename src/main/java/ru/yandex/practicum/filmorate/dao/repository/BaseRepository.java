@@ -2,18 +2,29 @@ package ru.yandex.practicum.filmorate.dao.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RequiredArgsConstructor
 public abstract class BaseRepository<T> {
+    // Ограничение на число параметров в одном IN (...), чтобы не упираться в лимиты драйвера
+    protected static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     protected final JdbcTemplate jdbc;
     protected final RowMapper<T> mapper;
 
@@ -65,6 +76,92 @@ public abstract class BaseRepository<T> {
         }
     }
 
+    // Пакетная вставка одним batchUpdate, сгенерированные id возвращаются в порядке строк
+    protected List<Long> insertAll(String query, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(
+                connection -> connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = rows.get(i);
+                        for (int idx = 0; idx < params.length; idx++) {
+                            ps.setObject(idx + 1, params[idx]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder
+        );
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != rows.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return keys.stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    // Вставка связей (ownerId, linkedId) для нескольких владельцев одним batchUpdate
+    protected void insertLinks(String insertQuery, Map<Long, Set<Long>> linksByOwner) {
+        List<Object[]> rows = new ArrayList<>();
+        linksByOwner.forEach((ownerId, linkedIds) -> {
+            if (linkedIds != null) {
+                linkedIds.forEach(id -> rows.add(new Object[]{ownerId, id}));
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(insertQuery, rows);
+        }
+    }
+
+    // Запрос должен содержать %s на месте списка параметров IN (...); остальные параметры
+    // запроса (trailingParams) идут после списка и повторяются для каждой порции id
+    protected <R> List<R> findByIds(String query, Collection<Long> ids, RowMapper<R> rowMapper,
+                                    Object... trailingParams) {
+        List<R> result = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, idList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<Object> params = new ArrayList<>(chunk);
+            params.addAll(Arrays.asList(trailingParams));
+            result.addAll(jdbc.query(String.format(query, placeholders), rowMapper, params.toArray()));
+        }
+        return result;
+    }
+
+    // Приводит связи владельца (film_id -> genre_id и т.п.) к target: удаляются и вставляются только
+    // отличающиеся строки, по одному batchUpdate на каждую операцию. SQL принимают (ownerId, linkedId)
+    protected void replaceLinks(String deleteQuery, String insertQuery, long ownerId,
+                                Set<Long> current, Set<Long> target) {
+        List<Object[]> removed = current.stream()
+                .filter(id -> !target.contains(id))
+                .map(id -> new Object[]{ownerId, id})
+                .toList();
+        List<Object[]> added = target.stream()
+                .filter(id -> !current.contains(id))
+                .map(id -> new Object[]{ownerId, id})
+                .toList();
+        if (!removed.isEmpty()) {
+            jdbc.batchUpdate(deleteQuery, removed);
+        }
+        if (!added.isEmpty()) {
+            jdbc.batchUpdate(insertQuery, added);
+        }
+    }
+
     protected boolean existsById(String query, Object... params) {
         return jdbc.queryForObject(query, Boolean.class, params);
     }
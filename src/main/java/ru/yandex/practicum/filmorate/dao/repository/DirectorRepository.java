@@ -7,7 +7,12 @@ import ru.yandex.practicum.filmorate.dao.dto.director.NewDirectorRequest;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.model.Director;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -26,9 +31,23 @@ public class DirectorRepository extends BaseRepository<Director> {
                     "JOIN directors d ON fd.director_id = d.director_id " +
                     "WHERE fd.film_id = ?";
 
+    private static final String FIND_BY_FILM_IDS_SQL =
+            "SELECT fd.film_id, d.director_id, d.name FROM film_directors fd " +
+                    "JOIN directors d ON fd.director_id = d.director_id " +
+                    "WHERE fd.film_id IN (%s) ORDER BY fd.film_id, d.director_id";
+
+    private static final String FIND_ALL_FILM_DIRECTORS_SQL = "SELECT film_id, director_id FROM film_directors";
+
     private static final String INSERT_FILM_DIRECTOR_SQL =
             "INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)";
 
+    private static final String FIND_IDS_BY_FILM_ID_SQL = "SELECT director_id FROM film_directors WHERE film_id = ?";
+
+    private static final String FIND_EXISTING_IDS_SQL = "SELECT director_id FROM directors WHERE director_id IN (%s)";
+
+    private static final String DELETE_FILM_DIRECTOR_SQL =
+            "DELETE FROM film_directors WHERE film_id = ? AND director_id = ?";
+
     private static final String DELETE_BY_FILM_ID_SQL =
             "DELETE FROM film_directors WHERE film_id = ?";
 
@@ -85,22 +104,40 @@ public class DirectorRepository extends BaseRepository<Director> {
         return findMany(FIND_BY_FILM_ID_SQL, filmId);
     }
 
+    public Map<Long, List<Director>> findDirectorsByFilmIds(Collection<Long> filmIds) {
+        Map<Long, List<Director>> result = new HashMap<>();
+        findByIds(FIND_BY_FILM_IDS_SQL, filmIds, (rs, rowNum) ->
+                Map.entry(rs.getLong("film_id"), mapper.mapRow(rs, rowNum)))
+                .forEach(entry -> result.computeIfAbsent(entry.getKey(), id -> new ArrayList<>())
+                        .add(entry.getValue()));
+        return result;
+    }
+
+    public Map<Long, Set<Long>> findAllDirectorIdsByFilm() {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        jdbc.query(FIND_ALL_FILM_DIRECTORS_SQL, rs -> {
+            result.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("director_id"));
+        });
+        return result;
+    }
+
     public void addDirectorToFilm(Long filmId, Long directorId) {
         if (!filmDirectorExists(filmId, directorId)) {
             jdbc.update(INSERT_FILM_DIRECTOR_SQL, filmId, directorId);
         }
     }
 
+    // Несуществующие режиссёры по-прежнему пропускаются, их отсеивает один запрос по всему набору
     public void addDirectorsToFilm(Long filmId, Set<Long> directorIds) {
-        deleteDirectorsFromFilm(filmId);
-        if (directorIds == null || directorIds.isEmpty()) {
-            return;
-        }
-        for (Long directorId : directorIds) {
-            if (exists(directorId)) {
-                addDirectorToFilm(filmId, directorId);
-            }
-        }
+        Set<Long> existing = new HashSet<>(findByIds(FIND_EXISTING_IDS_SQL, directorIds,
+                (rs, rowNum) -> rs.getLong("director_id")));
+        Set<Long> current = new HashSet<>(jdbc.queryForList(FIND_IDS_BY_FILM_ID_SQL, Long.class, filmId));
+        replaceLinks(DELETE_FILM_DIRECTOR_SQL, INSERT_FILM_DIRECTOR_SQL, filmId, current, existing);
+    }
+
+    // Режиссёры новых фильмов, id должны быть проверены заранее
+    public void addDirectorsToFilms(Map<Long, Set<Long>> directorIdsByFilm) {
+        insertLinks(INSERT_FILM_DIRECTOR_SQL, directorIdsByFilm);
     }
 
     public boolean deleteDirectorsFromFilm(Long filmId) {
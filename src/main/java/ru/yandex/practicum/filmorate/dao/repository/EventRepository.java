@@ -1,11 +1,20 @@
 package ru.yandex.practicum.filmorate.dao.repository;
 
+import jakarta.transaction.Transactional;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.EventRowMapper;
 import ru.yandex.practicum.filmorate.model.Event;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public class EventRepository extends BaseRepository<Event> {
@@ -13,30 +22,166 @@ public class EventRepository extends BaseRepository<Event> {
 
     private static final String INSERT_EVENT_SQL =
             "INSERT INTO events (timestamp, user_id, event_type, operation, entity_id) VALUES (?, ?, ?, ?, ?)";
-    private static final String FIND_USER_FEED_SQL =
-            "SELECT e.* FROM events e WHERE e.user_id = ? ORDER BY e.timestamp ASC";
+    private static final String FIND_BY_ID_SQL = "SELECT * FROM events WHERE event_id = ?";
+    private static final String FIND_BY_IDS_SQL = "SELECT * FROM events WHERE event_id IN (%s)";
+    private static final String FIND_USER_EVENT_SQL = "SELECT * FROM events WHERE event_id = ? AND user_id = ?";
+    // Порядок ленты (timestamp, event_id). Условия timestamp >= / <= дублируют курсор, чтобы H2 начинал
+    // чтение индекса с нужного места, а user_id в ORDER BY позволяет не сортировать, а читать индекс по порядку
+    private static final String FIND_USER_FEED_PAGE_SQL =
+            """
+                    SELECT e.* FROM events e
+                    WHERE e.user_id = ?
+                      AND e.timestamp >= ? AND (e.timestamp > ? OR (e.timestamp = ? AND e.event_id > ?))
+                      AND e.timestamp <= ? AND (e.timestamp < ? OR (e.timestamp = ? AND e.event_id < ?))
+                    ORDER BY e.user_id, e.timestamp, e.event_id
+                    FETCH FIRST ? ROWS ONLY
+                    """;
+    // Последние события перед курсором - по убывающему индексу idx_events_user_time_desc
+    private static final String FIND_USER_FEED_BEFORE_SQL =
+            """
+                    SELECT e.* FROM events e
+                    WHERE e.user_id = ?
+                      AND e.timestamp <= ? AND (e.timestamp < ? OR (e.timestamp = ? AND e.event_id < ?))
+                    ORDER BY e.user_id DESC, e.timestamp DESC, e.event_id DESC
+                    FETCH FIRST ? ROWS ONLY
+                    """;
+    // То же для нескольких авторов сразу (лента друзей): один запрос на порцию id
+    private static final String FIND_USERS_FEED_BEFORE_SQL =
+            """
+                    SELECT e.* FROM events e
+                    WHERE e.user_id IN (%s)
+                      AND (e.timestamp, e.event_id) < (?, ?)
+                    ORDER BY e.timestamp DESC, e.event_id DESC
+                    FETCH FIRST ? ROWS ONLY
+                    """;
+
+    // Очистка журнала: самые старые события по idx_events_timestamp и по индексу ленты пользователя
+    private static final String FIND_OLDER_THAN_SQL =
+            "SELECT * FROM events WHERE timestamp < ? ORDER BY timestamp FETCH FIRST ? ROWS ONLY";
+    private static final String FIND_OLDEST_USER_EVENTS_SQL =
+            "SELECT * FROM events WHERE user_id = ? ORDER BY user_id, timestamp, event_id FETCH FIRST ? ROWS ONLY";
+    private static final String COUNT_EVENTS_OVER_LIMIT_SQL =
+            "SELECT user_id, COUNT(*) AS events_count FROM events GROUP BY user_id HAVING COUNT(*) > ?";
+    private static final String DELETE_BY_ID_SQL = "DELETE FROM events WHERE event_id = ?";
 
     public EventRepository(JdbcTemplate jdbc, EventRowMapper mapper) {
         super(jdbc, mapper);
         this.jdbcTemplate = jdbc;
     }
 
+    // Сгенерированные event_id проставляются в переданные события: по ним FriendTimeline раскладывает ленты друзей
     public void addEvent(Event event) {
-        jdbcTemplate.update(
-                INSERT_EVENT_SQL,
+        event.setEventId(insertAll(INSERT_EVENT_SQL, List.<Object[]>of(toRow(event))).get(0));
+    }
+
+    // Пачка пишется целиком или не пишется: EventWriter при ошибке повторяет её по одному событию
+    @Transactional
+    public void addEvents(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Long> ids = insertAll(INSERT_EVENT_SQL, events.stream()
+                .map(EventRepository::toRow)
+                .toList());
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setEventId(ids.get(i));
+        }
+    }
+
+    public Optional<Event> findById(long eventId) {
+        return findOne(FIND_BY_ID_SQL, eventId);
+    }
+
+    // Порядок не гарантирован; удалённых событий в результате нет
+    public List<Event> findAllById(Collection<Long> eventIds) {
+        return findByIds(FIND_BY_IDS_SQL, eventIds, mapper);
+    }
+
+    public List<Event> getUserFeed(long userId) {
+        return getUserFeed(userId, null, null, Integer.MAX_VALUE);
+    }
+
+    public Optional<Event> findUserEvent(long userId, long eventId) {
+        return findOne(FIND_USER_EVENT_SQL, eventId, userId);
+    }
+
+    // Страница ленты по возрастанию (timestamp, event_id), события-курсоры since и before в неё не входят.
+    // Если задан только before - последние limit событий перед ним
+    public List<Event> getUserFeed(long userId, Event since, Event before, int limit) {
+        long toTimestamp = before != null ? before.getTimestamp() : Long.MAX_VALUE;
+        long toId = before != null ? before.getEventId() : Long.MAX_VALUE;
+        if (since == null && before != null) {
+            List<Event> page = new ArrayList<>(findLatestBefore(userId, before, limit));
+            Collections.reverse(page);
+            return page;
+        }
+
+        long fromTimestamp = since != null ? since.getTimestamp() : Long.MIN_VALUE;
+        long fromId = since != null ? since.getEventId() : Long.MIN_VALUE;
+        return jdbcTemplate.query(FIND_USER_FEED_PAGE_SQL, mapper,
+                userId,
+                fromTimestamp, fromTimestamp, fromTimestamp, fromId,
+                toTimestamp, toTimestamp, toTimestamp, toId,
+                limit);
+    }
+
+    // Последние limit событий пользователя перед курсором before (null - самые новые), от новых к старым
+    public List<Event> findLatestBefore(long userId, Event before, int limit) {
+        long toTimestamp = before != null ? before.getTimestamp() : Long.MAX_VALUE;
+        long toId = before != null ? before.getEventId() : Long.MAX_VALUE;
+        return jdbcTemplate.query(FIND_USER_FEED_BEFORE_SQL, mapper,
+                userId, toTimestamp, toTimestamp, toTimestamp, toId, limit);
+    }
+
+    // Последние limit событий авторов authorIds перед курсором before (null - самые новые), от новых к старым.
+    // Порции id (IN_CLAUSE_CHUNK_SIZE) выбираются отдельно, их результаты сливаются
+    public List<Event> findLatestBefore(Collection<Long> authorIds, Event before, int limit) {
+        long toTimestamp = before != null ? before.getTimestamp() : Long.MAX_VALUE;
+        long toId = before != null ? before.getEventId() : Long.MAX_VALUE;
+        List<Event> events = findByIds(FIND_USERS_FEED_BEFORE_SQL, authorIds, mapper, toTimestamp, toId, limit);
+        if (authorIds.size() <= IN_CLAUSE_CHUNK_SIZE) {
+            return events;
+        }
+        return events.stream()
+                .sorted(Comparator.comparingLong(Event::getTimestamp)
+                        .thenComparingLong(Event::getEventId)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static Object[] toRow(Event event) {
+        return new Object[]{
                 event.getTimestamp(),
                 event.getUserId(),
                 event.getEventType().name(),
                 event.getOperation().name(),
                 event.getEntityId()
-        );
+        };
     }
 
-    public List<Event> getUserFeed(long userId) {
-        return jdbcTemplate.query(
-                FIND_USER_FEED_SQL,
-                mapper,
-                userId
-        );
+    public List<Event> findOlderThan(long timestamp, int limit) {
+        return jdbcTemplate.query(FIND_OLDER_THAN_SQL, mapper, timestamp, limit);
+    }
+
+    public List<Event> findOldestUserEvents(long userId, int limit) {
+        return jdbcTemplate.query(FIND_OLDEST_USER_EVENTS_SQL, mapper, userId, limit);
+    }
+
+    // Пользователь -> число событий, только для тех, у кого событий больше limit
+    public Map<Long, Long> countEventsOverLimit(long limit) {
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query(COUNT_EVENTS_OVER_LIMIT_SQL, rs -> {
+            result.put(rs.getLong("user_id"), rs.getLong("events_count"));
+        }, limit);
+        return result;
+    }
+
+    // Удаление по первичному ключу одним batchUpdate; без внешней транзакции каждая строка фиксируется сразу
+    public int deleteAllById(List<Long> eventIds) {
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_BY_ID_SQL, eventIds.stream()
+                .map(id -> new Object[]{id})
+                .toList());
+        return Arrays.stream(deleted).sum();
     }
 }
@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.dao.repository;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
+@Slf4j
 @Component
 public class FilmRepository extends BaseRepository<Film> implements FilmStorage {
 
@@ -15,6 +23,12 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
     private static final String FIND_ID_EXIST = "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)";
     private static final String FIND_ALL_QUERY = "SELECT * FROM films";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM films WHERE film_id = ?";
+    private static final String FIND_PAGE_QUERY =
+            "SELECT * FROM films WHERE film_id > ? ORDER BY film_id FETCH FIRST ? ROWS ONLY";
+    private static final String FIND_ALL_ORDERED_QUERY = "SELECT * FROM films ORDER BY film_id";
+    private static final String FIND_ALL_IDS_QUERY = "SELECT film_id FROM films";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT film_id FROM films WHERE film_id IN (%s)";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM films WHERE film_id IN (%s)";
     private static final String INSERT_QUERY = "INSERT INTO films(name, description, release_date, duration, rating_id)" +
             "VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE film_id = ?";
@@ -22,12 +36,9 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
             """
                     SELECT f.*
                     FROM films f
-                    LEFT JOIN likes l ON f.film_id = l.film_id
-                    LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-                    WHERE (? IS NULL OR fg.genre_id = ?)
-                      AND (? IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?)
-                    GROUP BY f.film_id
-                    ORDER BY COUNT(l.user_id) DESC, f.film_id
+                    WHERE (? IS NULL OR EXISTS (SELECT 1 FROM film_genre fg WHERE fg.film_id = f.film_id AND fg.genre_id = ?))
+                      AND (? IS NULL OR (f.release_date >= ? AND f.release_date < ?))
+                    ORDER BY f.likes_count DESC, f.film_id
                     FETCH FIRST ? ROWS ONLY
                     """;
     private static final String FIND_TOP_POPULAR_FILMS_SQL =
@@ -65,34 +76,50 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
                     "ORDER BY likes_count DESC";
     private static final String DELETE_FILM_SQL = "DELETE FROM films WHERE film_id = ?";
 
-    private static final String SEARCH_FILMS_BY_TITLE_SQL =
-            "SELECT f.* FROM films f " +
-                    "WHERE LOWER(f.name) LIKE LOWER(?) " +
-                    "ORDER BY (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) DESC";
+    // Порядок по счётчику films.likes_count, шаблон передаётся уже в нижнем регистре.
+    // Курсор страницы - (likes_count, film_id) последнего фильма предыдущей страницы, поэтому
+    // выбираются только эти два поля, сами фильмы загружаются через getByIds
+    private static final String TITLE_MATCHES = "LOWER(f.name) LIKE ?";
+    private static final String DESCRIPTION_MATCHES = "LOWER(f.description) LIKE ?";
+    private static final String DIRECTOR_NAME_MATCHES =
+            "EXISTS (SELECT 1 FROM film_directors fd " +
+                    "JOIN directors d ON fd.director_id = d.director_id " +
+                    "WHERE fd.film_id = f.film_id AND LOWER(d.name) LIKE ?)";
+    private static final String SEARCH_SQL_TEMPLATE =
+            "SELECT f.film_id, f.likes_count FROM films f WHERE (%s) " +
+                    "AND (f.likes_count < ? OR (f.likes_count = ? AND f.film_id > ?)) " +
+                    "ORDER BY f.likes_count DESC, f.film_id FETCH FIRST ? ROWS ONLY";
+
+    private static final String SEARCH_FILMS_BY_TITLE_SQL = String.format(SEARCH_SQL_TEMPLATE, TITLE_MATCHES);
 
     private static final String SEARCH_FILMS_BY_DESCRIPTION_SQL =
-            "SELECT f.* FROM films f " +
-                    "WHERE LOWER(f.description) LIKE LOWER(?) " +
-                    "ORDER BY (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) DESC";
+            String.format(SEARCH_SQL_TEMPLATE, DESCRIPTION_MATCHES);
 
     private static final String SEARCH_FILMS_BY_DIRECTOR_SQL =
-            "SELECT f.* FROM films f " +
-                    "JOIN film_directors fd ON f.film_id = fd.film_id " +
-                    "JOIN directors d ON fd.director_id = d.director_id " +
-                    "WHERE LOWER(d.name) LIKE LOWER(?) " +
-                    "ORDER BY (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) DESC";
+            String.format(SEARCH_SQL_TEMPLATE, DIRECTOR_NAME_MATCHES);
 
     private static final String SEARCH_FILMS_BY_TITLE_AND_DIRECTOR_SQL =
-            "SELECT f.* FROM films f " +
-                    "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                    "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                    "WHERE LOWER(f.name) LIKE LOWER(?) OR LOWER(d.name) LIKE LOWER(?) " +
-                    "ORDER BY f.film_id";
+            String.format(SEARCH_SQL_TEMPLATE, TITLE_MATCHES + " OR " + DIRECTOR_NAME_MATCHES);
+
+    private static final String FIND_LIKES_COUNT_SQL = "SELECT likes_count FROM films WHERE film_id = ?";
+
+    private static final RowMapper<FilmRank> FILM_RANK_MAPPER =
+            (rs, rowNum) -> new FilmRank(rs.getLong("film_id"), rs.getLong("likes_count"));
+
+    private final IdMembership knownIds = new IdMembership();
 
     public FilmRepository(JdbcTemplate jdbc, RowMapper<Film> mapper) {
         super(jdbc, mapper);
     }
 
+    // Множество id для validateId и findExistingIds; без загрузки проверки идут в БД
+    @PostConstruct
+    public void loadIds() {
+        List<Long> filmIds = jdbc.queryForList(FIND_ALL_IDS_QUERY, Long.class);
+        knownIds.reload(filmIds);
+        log.info("Id фильмов загружены: {}", filmIds.size());
+    }
+
 
     @Override
     public Film create(Film film) {
@@ -105,9 +132,30 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
                 film.getMpa()
         );
         film.setId(id);
+        knownIds.added(id);
         return film;
     }
 
+    // Все фильмы вставляются одним пакетом, id проставляются в переданные объекты
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<Object[]> rows = films.stream()
+                .map(film -> new Object[]{
+                        film.getName(),
+                        film.getDescription(),
+                        film.getReleaseDate(),
+                        film.getDuration(),
+                        film.getMpa()
+                })
+                .toList();
+        List<Long> filmIds = insertAll(INSERT_QUERY, rows);
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(filmIds.get(i));
+            knownIds.added(filmIds.get(i));
+        }
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
         update(
@@ -127,12 +175,53 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Override
+    public List<Film> getAll(Long afterId, int limit) {
+        return findMany(FIND_PAGE_QUERY, afterId != null ? afterId : 0L, limit);
+    }
+
+
+    // Один проход по films курсором только вперёд: в памяти не больше одной пачки фильмов
+    @Override
+    public void forEachBatch(int fetchSize, int batchSize, Consumer<List<Film>> batchConsumer) {
+        List<Film> batch = new ArrayList<>(batchSize);
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    FIND_ALL_ORDERED_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            batch.add(mapper.mapRow(rs, rs.getRow()));
+            if (batch.size() == batchSize) {
+                batchConsumer.accept(List.copyOf(batch));
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(List.copyOf(batch));
+        }
+    }
 
     @Override
     public Optional<Film> getById(Long id) {
         return findOne(FIND_BY_ID_QUERY, id);
     }
 
+    // Возвращает фильмы в порядке переданных id, отсутствующие пропускаются
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        Map<Long, Film> filmsById = new HashMap<>();
+        findByIds(FIND_BY_IDS_QUERY, ids, mapper).forEach(film -> filmsById.put(film.getId(), film));
+        List<Film> result = new ArrayList<>(filmsById.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Optional<Film> findByNameAndReleaseDate(String name, LocalDate releaseDate) {
         return findOne(FIND_EXIST_BY_NAME_DATE_QUERY, name, releaseDate);
@@ -140,17 +229,38 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
 
     @Override
     public List<Film> getPopularFilms(Integer genreId, Integer year, int count) {
+        // Год переводим в диапазон дат, чтобы не вычислять EXTRACT для каждой строки
+        LocalDate yearStart = year != null ? LocalDate.of(year, 1, 1) : null;
+        LocalDate yearEnd = year != null ? yearStart.plusYears(1) : null;
         return findMany(
                 FIND_POPULAR_FILMS_WITH_FILTERS_SQL,
                 genreId, genreId,
-                year, year,
+                year, yearStart, yearEnd,
                 count
         );
     }
 
     @Override
     public boolean validateId(long id) {
-        return existsById(FIND_ID_EXIST, id);
+        return knownIds.isPresent(id) || existsById(FIND_ID_EXIST, id);
+    }
+
+    // В БД уходят только id, которых нет среди известных в памяти
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (knownIds.isPresent(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            existing.addAll(findByIds(FIND_EXISTING_IDS_QUERY, unknown, (rs, rowNum) -> rs.getLong("film_id")));
+        }
+        return existing;
     }
 
     @Override
@@ -184,50 +294,50 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
 
     @Override
     public boolean deleteFilm(long id) {
-        return delete(DELETE_FILM_SQL, id);
+        boolean deleted = delete(DELETE_FILM_SQL, id);
+        if (deleted) {
+            knownIds.removed(id);
+        }
+        return deleted;
     }
 
 
     @Override
     public List<Film> searchFilms(String query, Set<String> searchBy) {
-        String searchPattern = "%" + query.toLowerCase() + "%";
+        List<FilmRank> ranks = searchFilmRanks(query, searchBy, null, null, Integer.MAX_VALUE);
+        return getByIds(ranks.stream().map(FilmRank::filmId).toList());
+    }
 
-        List<Film> films;
+    @Override
+    public List<FilmRank> searchFilmRanks(String query, Set<String> searchBy, Long afterLikes, Long afterId,
+                                          int limit) {
+        String searchPattern = "%" + query.toLowerCase() + "%";
+        // Без курсора условие likes_count < Long.MAX_VALUE пропускает все фильмы
+        long likesBound = Long.MAX_VALUE;
+        long afterFilmId = 0;
+        if (afterId != null) {
+            // Без afterLikes позиция фильма afterId берётся по его текущему счётчику
+            likesBound = afterLikes != null ? afterLikes : jdbc.queryForList(FIND_LIKES_COUNT_SQL, Long.class, afterId)
+                    .stream()
+                    .findFirst()
+                    .orElse(0L);
+            afterFilmId = afterId;
+        }
 
         if (searchBy.contains("title") && searchBy.contains("director")) {
-            films = findMany(SEARCH_FILMS_BY_TITLE_AND_DIRECTOR_SQL, searchPattern, searchPattern);
+            return jdbc.query(SEARCH_FILMS_BY_TITLE_AND_DIRECTOR_SQL, FILM_RANK_MAPPER,
+                    searchPattern, searchPattern, likesBound, likesBound, afterFilmId, limit);
         } else if (searchBy.contains("title")) {
-            films = findMany(SEARCH_FILMS_BY_TITLE_SQL, searchPattern);
-
+            return jdbc.query(SEARCH_FILMS_BY_TITLE_SQL, FILM_RANK_MAPPER,
+                    searchPattern, likesBound, likesBound, afterFilmId, limit);
         } else if (searchBy.contains("description")) {
-            films = findMany(SEARCH_FILMS_BY_DESCRIPTION_SQL, searchPattern);
-
+            return jdbc.query(SEARCH_FILMS_BY_DESCRIPTION_SQL, FILM_RANK_MAPPER,
+                    searchPattern, likesBound, likesBound, afterFilmId, limit);
         } else if (searchBy.contains("director")) {
-            films = findMany(SEARCH_FILMS_BY_DIRECTOR_SQL, searchPattern);
-        } else {
-            films = findMany(SEARCH_FILMS_BY_TITLE_AND_DIRECTOR_SQL, searchPattern, searchPattern);
-        }
-        return sortFilmsByPopularity(films);
-    }
-
-
-    private List<Film> sortFilmsByPopularity(List<Film> films) {
-        if (films.isEmpty()) {
-            return films;
-        }
-
-        Map<Long, Integer> likesCount = new HashMap<>();
-        for (Film film : films) {
-            String sql = "SELECT COUNT(*) FROM likes WHERE film_id = ?";
-            Integer count = jdbc.queryForObject(sql, Integer.class, film.getId());
-            likesCount.put(film.getId(), count != null ? count : 0);
+            return jdbc.query(SEARCH_FILMS_BY_DIRECTOR_SQL, FILM_RANK_MAPPER,
+                    searchPattern, likesBound, likesBound, afterFilmId, limit);
         }
-
-        films.sort((f1, f2) -> {
-            int likes1 = likesCount.getOrDefault(f1.getId(), 0);
-            int likes2 = likesCount.getOrDefault(f2.getId(), 0);
-            return Integer.compare(likes2, likes1);
-        });
-        return films;
+        return jdbc.query(SEARCH_FILMS_BY_TITLE_AND_DIRECTOR_SQL, FILM_RANK_MAPPER,
+                searchPattern, searchPattern, likesBound, likesBound, afterFilmId, limit);
     }
 }
@@ -1,29 +1,41 @@
 package ru.yandex.practicum.filmorate.dao.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
 
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Collection<Film> getAll();
 
+    List<Film> getAll(Long afterId, int limit);
+
+    void forEachBatch(int fetchSize, int batchSize, Consumer<List<Film>> batchConsumer);
+
     Optional<Film> getById(Long id);
 
+    List<Film> getByIds(Collection<Long> ids);
+
     Optional<Film> findByNameAndReleaseDate(String name, LocalDate releaseDate);
 
     List<Film> getPopularFilms(Integer genreId, Integer year, int count);
 
     boolean validateId(long id);
 
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     List<Film> findByDirectorIdSorted(Long directorId, String sortBy);
 
     Collection<Film> getLikedFilmsByUserId(long userId);
@@ -33,4 +45,6 @@ public interface FilmStorage {
     boolean deleteFilm(long id);
 
     List<Film> searchFilms(String query, Set<String> searchBy);
+
+    List<FilmRank> searchFilmRanks(String query, Set<String> searchBy, Long afterLikes, Long afterId, int limit);
 }
@@ -6,16 +6,24 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.FriendRowMapper;
 import ru.yandex.practicum.filmorate.model.Friend;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public class FriendRepository extends BaseRepository<Friend> {
 
     private static final String FIND_BY_ID_SQL = "SELECT * FROM friends WHERE user_id = ? AND friend_id = ?";
     private static final String FIND_BY_USER_ID_SQL = "SELECT * FROM friends WHERE user_id = ?";
+    private static final String FIND_ALL_LINKS_SQL = "SELECT user_id, friend_id FROM friends";
     private static final String INSERT_SQL = "INSERT INTO friends (user_id, friend_id, status) VALUES (?, ?, ?)";
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO friends (user_id, friend_id, status) SELECT ?, ?, ? " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)";
     private static final String UPDATE_STATUS_SQL = "UPDATE friends SET status = ? WHERE user_id = ? AND friend_id = ?";
     private static final String DELETE_BY_IDS_SQL = "DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
     private static final String EXISTS_SQL = "SELECT COUNT(*) FROM friends WHERE user_id = ? AND friend_id = ?";
@@ -32,6 +40,15 @@ public class FriendRepository extends BaseRepository<Friend> {
         return findMany(FIND_BY_USER_ID_SQL, userId);
     }
 
+    // Пользователь -> id его друзей, для загрузки FriendTimeline
+    public Map<Long, Set<Long>> findAllFriendIdsByUser() {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        jdbc.query(FIND_ALL_LINKS_SQL, rs -> {
+            result.computeIfAbsent(rs.getLong("user_id"), id -> new HashSet<>()).add(rs.getLong("friend_id"));
+        });
+        return result;
+    }
+
 
     public Friend save(Friend friend) {
         if (exists(friend.getUserId(), friend.getFriendId())) {
@@ -48,6 +65,24 @@ public class FriendRepository extends BaseRepository<Friend> {
         return friend;
     }
 
+    // Пакетная вставка, существующие связи не меняются. Возвращает только вставленные
+    public List<Friend> saveAllIfAbsent(List<Friend> friends) {
+        int[] inserted = jdbc.batchUpdate(INSERT_IF_ABSENT_SQL, friends.stream()
+                .map(friend -> new Object[]{
+                        friend.getUserId(), friend.getFriendId(), friend.getStatus(),
+                        friend.getUserId(), friend.getFriendId()
+                })
+                .toList());
+
+        List<Friend> result = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                result.add(friends.get(i));
+            }
+        }
+        return result;
+    }
+
     public boolean delete(Long userId, Long friendId) {
         return delete(DELETE_BY_IDS_SQL, userId, friendId);
     }
@@ -14,8 +14,13 @@ public class GenreRepository extends BaseRepository<Genre> {
     private static final String FIND_ALL_SQL = "SELECT * FROM genre ORDER BY genre_id";
     private static final String FIND_BY_ID_SQL = "SELECT * FROM genre WHERE genre_id = ?";
     private static final String FIND_ALL_BY_FILM_ID_SQL = "SELECT genre_id FROM film_genre WHERE film_id = ?";
-    private static final String DELETE_GENRES_BY_FILM_SQL = "DELETE FROM film_genre WHERE film_id = ?";
+    private static final String DELETE_FILM_GENRE_SQL = "DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?";
     private static final String INSERT_FILM_GENRE_SQL = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+    private static final String FIND_ALL_FILM_GENRES_SQL = "SELECT film_id, genre_id FROM film_genre";
+    private static final String FIND_ALL_BY_FILM_IDS_SQL =
+            "SELECT fg.film_id, g.genre_id, g.name FROM film_genre AS fg " +
+                    "JOIN genre AS g ON g.genre_id = fg.genre_id " +
+                    "WHERE fg.film_id IN (%s) ORDER BY fg.film_id, g.genre_id";
 
     public GenreRepository(JdbcTemplate jdbc, GenreRowMapper mapper) {
         super(jdbc, mapper);
@@ -38,23 +43,30 @@ public class GenreRepository extends BaseRepository<Genre> {
         return findMany(FIND_ALL_BY_ID_SQL, filmId);
     }
 
-    public void saveGenresIdsByFilm(long filmId, Set<Long> genreIds) {
-        deleteGenresByFilm(filmId);
-        if (genreIds != null && !genreIds.isEmpty()) {
-            insertFilmGenres(filmId, genreIds);
-        }
+    public Map<Long, Set<Genre>> findGenresByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> result = new HashMap<>();
+        findByIds(FIND_ALL_BY_FILM_IDS_SQL, filmIds, (rs, rowNum) ->
+                Map.entry(rs.getLong("film_id"), mapper.mapRow(rs, rowNum)))
+                .forEach(entry -> result.computeIfAbsent(entry.getKey(), id -> new LinkedHashSet<>())
+                        .add(entry.getValue()));
+        return result;
     }
 
-    private void deleteGenresByFilm(long filmId) {
-        jdbc.update(DELETE_GENRES_BY_FILM_SQL, filmId);
+    public Map<Long, Set<Long>> findAllGenreIdsByFilm() {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        jdbc.query(FIND_ALL_FILM_GENRES_SQL, rs -> {
+            result.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("genre_id"));
+        });
+        return result;
     }
 
-    private void insertFilmGenres(long filmId, Set<Long> genreIds) {
-        List<Object[]> batchArgs = new ArrayList<>();
-        for (Long genreId : genreIds) {
-            batchArgs.add(new Object[]{filmId, genreId});
-        }
+    // Жанры новых фильмов: связей у них ещё нет, поэтому только вставка
+    public void addGenresToFilms(Map<Long, Set<Long>> genreIdsByFilm) {
+        insertLinks(INSERT_FILM_GENRE_SQL, genreIdsByFilm);
+    }
 
-        jdbc.batchUpdate(INSERT_FILM_GENRE_SQL, batchArgs);
+    public void saveGenresIdsByFilm(long filmId, Set<Long> genreIds) {
+        replaceLinks(DELETE_FILM_GENRE_SQL, INSERT_FILM_GENRE_SQL, filmId,
+                findIdsByFilm(filmId), genreIds != null ? genreIds : Set.of());
     }
 }
\ No newline at end of file
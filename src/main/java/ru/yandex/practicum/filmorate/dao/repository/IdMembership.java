@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.dao.repository;
+
+import ru.yandex.practicum.filmorate.service.AfterCommit;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Множество id сущности в памяти, чтобы проверка существования известных id не ходила в БД.
+// Ответ из памяти только "есть": отсутствие id в множестве ничего не доказывает (строку могла вставить
+// ещё не завершившаяся транзакция или запись в обход репозитория), такие id проверяются запросом.
+// Автоинкрементные id до DENSE_LIMIT хранятся в BitSet, остальные всегда проверяются в БД.
+// Новые и удалённые id применяются после commit, откат транзакции множество не меняет
+class IdMembership {
+    private static final int DENSE_LIMIT = 1 << 24;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet dense = new BitSet();
+
+    void reload(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            dense.clear();
+            ids.forEach(id -> {
+                if (isDense(id)) {
+                    dense.set(id.intValue());
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // true - id точно есть; false - ответа нет, нужен запрос в БД
+    boolean isPresent(long id) {
+        if (!isDense(id)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return dense.get((int) id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // В своей транзакции новый id до commit проверяется запросом и виден там без участия памяти
+    void added(long id) {
+        AfterCommit.run(() -> write(id, true));
+    }
+
+    // До фиксации удаления строка для остальных транзакций ещё есть - убираем id после commit
+    void removed(long id) {
+        AfterCommit.run(() -> write(id, false));
+    }
+
+    private void write(long id, boolean present) {
+        if (!isDense(id)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            dense.set((int) id, present);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isDense(long id) {
+        return id >= 0 && id < DENSE_LIMIT;
+    }
+}
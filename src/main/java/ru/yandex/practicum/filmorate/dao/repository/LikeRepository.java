@@ -1,11 +1,16 @@
 package ru.yandex.practicum.filmorate.dao.repository;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.LikeRowMapper;
 import ru.yandex.practicum.filmorate.model.Like;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -16,9 +21,20 @@ public class LikeRepository extends BaseRepository<Like> {
     private static final String FIND_BY_FILM_ID_SQL = "SELECT * FROM likes WHERE film_id = ?";
     private static final String FIND_BY_USER_ID_SQL = "SELECT * FROM likes WHERE user_id = ?";
     private static final String FIND_USER_IDS_BY_FILM_ID_SQL = "SELECT user_id FROM likes WHERE film_id = ?";
+    private static final String FIND_BY_FILM_IDS_SQL = "SELECT film_id, user_id FROM likes WHERE film_id IN (%s)";
     private static final String INSERT_SQL = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
     private static final String DELETE_BY_IDS_SQL = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
     private static final String DELETE_ALL_BY_FILM_SQL = "DELETE FROM likes WHERE film_id = ?";
+    private static final String COUNT_LIKES_BY_FILM_SQL = "SELECT film_id, COUNT(*) AS cnt FROM likes GROUP BY film_id";
+    private static final String FIND_ALL_ORDERED_BY_USER_SQL = "SELECT user_id, film_id FROM likes ORDER BY user_id, film_id";
+    private static final String INCREMENT_LIKES_COUNT_SQL = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+    private static final String RESET_LIKES_COUNT_SQL = "UPDATE films SET likes_count = 0 WHERE film_id = ?";
+    private static final String RECALCULATE_LIKES_COUNT_SQL =
+            "UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) " +
+                    "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)";
 
     public LikeRepository(JdbcTemplate jdbc, LikeRowMapper mapper) {
         super(jdbc, mapper);
@@ -38,19 +54,95 @@ public class LikeRepository extends BaseRepository<Like> {
         return new HashSet<>(userIds);
     }
 
+    public Map<Long, Set<Long>> findUserIdsByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        findByIds(FIND_BY_FILM_IDS_SQL, filmIds, mapper)
+                .forEach(like -> result.computeIfAbsent(like.getFilmId(), id -> new HashSet<>())
+                        .add(like.getUserId()));
+        return result;
+    }
+
+    public Map<Long, Long> countLikesByFilm() {
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query(COUNT_LIKES_BY_FILM_SQL, rs -> {
+            result.put(rs.getLong("film_id"), rs.getLong("cnt"));
+        });
+        return result;
+    }
+
+    // Лайки всех пользователей: user_id -> film_id по возрастанию
+    public Map<Long, List<Long>> findAllFilmIdsByUser() {
+        Map<Long, List<Long>> result = new HashMap<>();
+        jdbcTemplate.query(FIND_ALL_ORDERED_BY_USER_SQL, rs -> {
+            result.computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>()).add(rs.getLong("film_id"));
+        });
+        return result;
+    }
+
     public Like save(Like like) {
         jdbcTemplate.update(INSERT_SQL, like.getFilmId(), like.getUserId());
+        jdbcTemplate.update(INCREMENT_LIKES_COUNT_SQL, 1, like.getFilmId());
         return like;
     }
 
+    // Вставка по первичному ключу likes без чтения остальных лайков фильма: true - лайк добавлен,
+    // false - уже был. Параллельная вставка той же пары тоже считается существующим лайком
+    public boolean saveIfAbsent(Like like) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(INSERT_IF_ABSENT_SQL,
+                    like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId());
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (inserted > 0) {
+            jdbcTemplate.update(INCREMENT_LIKES_COUNT_SQL, 1, like.getFilmId());
+        }
+        return inserted > 0;
+    }
+
+    // Пакетная вставка, уже существующие лайки пропускаются. Возвращает только вставленные,
+    // films.likes_count увеличивается одним пакетом на число новых лайков каждого фильма
+    public List<Like> saveAllIfAbsent(List<Like> likes) {
+        List<Object[]> rows = likes.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()})
+                .toList();
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, rows);
+
+        List<Like> result = new ArrayList<>();
+        Map<Long, Integer> addedByFilm = new HashMap<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                Like like = likes.get(i);
+                result.add(like);
+                addedByFilm.merge(like.getFilmId(), 1, Integer::sum);
+            }
+        }
+        if (!addedByFilm.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_LIKES_COUNT_SQL, addedByFilm.entrySet().stream()
+                    .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                    .toList());
+        }
+        return result;
+    }
+
     public boolean delete(Long filmId, Long userId) {
         int rowsDeleted = jdbcTemplate.update(DELETE_BY_IDS_SQL, filmId, userId);
+        if (rowsDeleted > 0) {
+            jdbcTemplate.update(INCREMENT_LIKES_COUNT_SQL, -rowsDeleted, filmId);
+        }
         return rowsDeleted > 0;
     }
 
     public boolean deleteLikesAllByFilmId(Long filmId) {
         int rowsDeleted = jdbcTemplate.update(DELETE_ALL_BY_FILM_SQL, filmId);
+        jdbcTemplate.update(RESET_LIKES_COUNT_SQL, filmId);
         return rowsDeleted > 0;
     }
 
+    // Пересчитывает films.likes_count по таблице likes, возвращает число исправленных фильмов
+    public int recalculateLikesCount() {
+        return jdbcTemplate.update(RECALCULATE_LIKES_COUNT_SQL);
+    }
+
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import ru.yandex.practicum.filmorate.model.ReviewLike;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -23,10 +24,13 @@ public class ReviewLikeRepository extends BaseRepository<ReviewLike> {
             "UPDATE review_likes SET is_like = ? WHERE review_id = ? AND user_id = ?";
     private static final String DELETE_SQL =
             "DELETE FROM review_likes WHERE review_id = ? AND user_id = ?";
-    private static final String COUNT_LIKES_SQL =
-            "SELECT COUNT(*) FROM review_likes WHERE review_id = ? AND is_like = true";
-    private static final String COUNT_DISLIKES_SQL =
-            "SELECT COUNT(*) FROM review_likes WHERE review_id = ? AND is_like = false";
+    // Условные изменения: строка меняется, только если реакция действительно другая, так что
+    // параллельные запросы не применят одну и ту же разницу к useful дважды
+    private static final String UPDATE_IF_CHANGED_SQL =
+            "UPDATE review_likes SET is_like = ? WHERE review_id = ? AND user_id = ? AND is_like <> ?";
+    private static final String DELETE_REACTION_SQL =
+            "DELETE FROM review_likes WHERE review_id = ? AND user_id = ? AND is_like = ?";
+    private static final String INCREMENT_USEFUL_SQL = "UPDATE reviews SET useful = useful + ? WHERE review_id = ?";
     private static final String EXISTS_SQL =
             "SELECT COUNT(*) > 0 FROM review_likes WHERE review_id = ? AND user_id = ?";
     private static final String FIND_BY_USER_ID_SQL = "SELECT user_id FROM review_likes WHERE review_id = ?";
@@ -76,6 +80,20 @@ public class ReviewLikeRepository extends BaseRepository<ReviewLike> {
         return reviewLike;
     }
 
+    // true - реакция сменилась на reviewLike.isLike, false - реакции нет или она уже такая
+    public boolean updateIfChanged(ReviewLike reviewLike) {
+        return jdbcTemplate.update(UPDATE_IF_CHANGED_SQL,
+                reviewLike.getIsLike(),
+                reviewLike.getReviewId(),
+                reviewLike.getUserId(),
+                reviewLike.getIsLike()) > 0;
+    }
+
+    // true - удалена реакция указанного типа
+    public boolean deleteReaction(Long reviewId, Long userId, boolean isLike) {
+        return delete(DELETE_REACTION_SQL, reviewId, userId, isLike);
+    }
+
     public void delete(Long reviewId, Long userId) {
         boolean deleted = delete(DELETE_SQL, reviewId, userId);
         if (!deleted) {
@@ -85,16 +103,6 @@ public class ReviewLikeRepository extends BaseRepository<ReviewLike> {
         }
     }
 
-    public long countLikes(Long reviewId) {
-        Long count = jdbcTemplate.queryForObject(COUNT_LIKES_SQL, Long.class, reviewId);
-        return count != null ? count : 0L;
-    }
-
-    public long countDislikes(Long reviewId) {
-        Long count = jdbcTemplate.queryForObject(COUNT_DISLIKES_SQL, Long.class, reviewId);
-        return count != null ? count : 0L;
-    }
-
     public boolean exists(Long reviewId, Long userId) {
         return jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, reviewId, userId);
     }
@@ -104,6 +112,21 @@ public class ReviewLikeRepository extends BaseRepository<ReviewLike> {
         jdbcTemplate.update(sql, useful, reviewId);
     }
 
+    // Атомарное изменение рейтинга без пересчёта реакций
+    public void incrementReviewUseful(Long reviewId, long delta) {
+        jdbcTemplate.update(INCREMENT_USEFUL_SQL, delta, reviewId);
+    }
+
+    // Накопленные разницы нескольких отзывов одним batchUpdate
+    public void incrementReviewUsefulAll(Map<Long, Long> deltaByReview) {
+        if (deltaByReview.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_USEFUL_SQL, deltaByReview.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+    }
+
     public Set<Long> findAllReviewLikes(Long reviewId) {
         List<Long> userIds =
                 jdbcTemplate.queryForList(FIND_BY_USER_ID_SQL, Long.class, reviewId);
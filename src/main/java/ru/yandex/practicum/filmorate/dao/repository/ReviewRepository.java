@@ -14,16 +14,26 @@ public class ReviewRepository extends BaseRepository<Review> {
     private final JdbcTemplate jdbcTemplate;
 
     private static final String FIND_BY_ID_SQL = "SELECT * FROM reviews WHERE review_id = ?";
-    private static final String FIND_ALL_SQL = "SELECT * FROM reviews ORDER BY useful DESC LIMIT ?";
+    // Рейтинг берётся из поддерживаемой колонки useful, страница читается по индексу без сортировки.
+    // Для выборки по фильму H2 сам выбирает индекс внешнего ключа и сортирует все отзывы фильма,
+    // поэтому idx_reviews_film_useful указан явно; film_id в ORDER BY нужен, чтобы H2 не сортировал
+    private static final String FIND_ALL_SQL = "SELECT * FROM reviews ORDER BY useful DESC, review_id LIMIT ?";
     private static final String FIND_BY_FILM_ID_SQL =
-            "SELECT * FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
+            "SELECT * FROM reviews USE INDEX (idx_reviews_film_useful) " +
+                    "WHERE film_id = ? ORDER BY film_id, useful DESC, review_id LIMIT ?";
 
     private static final String INSERT_SQL =
             "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) " +
                     "VALUES (?, ?, ?, ?, ?)";
 
     private static final String UPDATE_SQL = "UPDATE reviews SET content = ?, is_positive = ?, useful = ? WHERE review_id = ?";
+    private static final String UPDATE_CONTENT_SQL = "UPDATE reviews SET content = ?, is_positive = ? WHERE review_id = ?";
     private static final String DELETE_SQL = "DELETE FROM reviews WHERE review_id = ?";
+    private static final String USEFUL_FROM_LIKES_SQL =
+            "(SELECT COALESCE(SUM(CASE WHEN rl.is_like THEN 1 ELSE -1 END), 0) FROM review_likes rl " +
+                    "WHERE rl.review_id = r.review_id)";
+    private static final String RECALCULATE_USEFUL_SQL =
+            "UPDATE reviews r SET useful = " + USEFUL_FROM_LIKES_SQL + " WHERE useful <> " + USEFUL_FROM_LIKES_SQL;
     private static final String EXISTS_BY_ID_SQL = "SELECT COUNT(*) > 0 FROM reviews WHERE review_id = ?";
 
     public ReviewRepository(JdbcTemplate jdbc, ReviewRowMapper mapper) {
@@ -56,6 +66,19 @@ public class ReviewRepository extends BaseRepository<Review> {
         return review;
     }
 
+    // Правка текста отзыва: useful не перезаписывается прочитанным ранее значением,
+    // иначе реакция, поставленная между чтением и записью, потеряется
+    public Review updateContent(Review review) {
+        update(
+                UPDATE_CONTENT_SQL,
+                review.getContent(),
+                review.isPositive(),
+                review.getReviewId()
+        );
+
+        return review;
+    }
+
     public Review save(Review review) {
         if (review.getReviewId() == 0) {
             return create(review);
@@ -93,4 +116,9 @@ public class ReviewRepository extends BaseRepository<Review> {
         String sql = "UPDATE reviews SET useful = ? WHERE review_id = ?";
         jdbcTemplate.update(sql, useful, reviewId);
     }
-}
\ No newline at end of file
+
+    // Пересчёт useful по review_likes одним запросом; возвращает число исправленных отзывов
+    public int recalculateUseful() {
+        return jdbcTemplate.update(RECALCULATE_USEFUL_SQL);
+    }
+}
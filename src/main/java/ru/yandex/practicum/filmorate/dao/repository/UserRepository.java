@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.dao.repository;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
@@ -7,10 +9,14 @@ import ru.yandex.practicum.filmorate.dao.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserMapper;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+@Slf4j
 @Component
 public class UserRepository extends BaseRepository<User> implements UserStorage {
     private static final String FIND_BY_EMAIL_QUERY = "SELECT * FROM users WHERE email = ?";
@@ -20,21 +26,52 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
                     "JOIN friends AS f ON u.user_id = f.friend_id " +
                     "WHERE f.user_id = ?";
     private static final String FIND_ALL_QUERY = "SELECT * FROM users";
+    private static final String FIND_PAGE_QUERY =
+            "SELECT * FROM users WHERE user_id > ? ORDER BY user_id FETCH FIRST ? ROWS ONLY";
+    private static final String FIND_ALL_IDS_QUERY = "SELECT user_id FROM users ORDER BY user_id";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT user_id FROM users WHERE user_id IN (%s)";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE user_id = ?";
     private static final String INSERT_QUERY = "INSERT INTO users(email, login, name, birthday) VALUES (?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
     private static final String DELETE_USER_SQL = "DELETE FROM users WHERE user_id = ?";
+    private static final String DECREMENT_LIKED_FILMS_COUNT_SQL =
+            "UPDATE films SET likes_count = likes_count - 1 " +
+                    "WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)";
+    // Лайк пользователя добавлял отзыву +1, дизлайк -1
+    private static final String REVERT_REVIEW_REACTIONS_SQL =
+            "UPDATE reviews r SET useful = useful - (SELECT CASE WHEN rl.is_like THEN 1 ELSE -1 END " +
+                    "FROM review_likes rl WHERE rl.review_id = r.review_id AND rl.user_id = ?) " +
+                    "WHERE review_id IN (SELECT review_id FROM review_likes WHERE user_id = ?)";
+
+    private final IdMembership knownIds = new IdMembership();
 
     public UserRepository(JdbcTemplate jdbc, RowMapper<User> mapper) {
         super(jdbc, mapper);
     }
 
+    // Множество id для validateId и findExistingIds; без загрузки проверки идут в БД
+    @PostConstruct
+    public void loadIds() {
+        List<Long> userIds = getAllIds();
+        knownIds.reload(userIds);
+        log.info("Id пользователей загружены: {}", userIds.size());
+    }
+
 
     @Override
     public Collection<User> getAll() {
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Override
+    public List<User> getAll(Long afterId, int limit) {
+        return findMany(FIND_PAGE_QUERY, afterId != null ? afterId : 0L, limit);
+    }
+
+    public List<Long> getAllIds() {
+        return jdbc.queryForList(FIND_ALL_IDS_QUERY, Long.class);
+    }
+
     @Override
     public Optional<User> getById(long id) {
         return findOne(FIND_BY_ID_QUERY, id);
@@ -51,6 +88,7 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
                 user.getBirthday()
         );
         user.setId(id);
+        knownIds.added(id);
         return user;
     }
 
@@ -80,12 +118,39 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
 
     @Override
     public boolean validateId(long id) {
-        return existsById(FIND_ID_EXIST, id);
+        return knownIds.isPresent(id) || existsById(FIND_ID_EXIST, id);
+    }
+
+    // Какие из переданных id есть в users. В БД уходят только id, которых нет среди известных в памяти,
+    // по одному запросу на каждые IN_CLAUSE_CHUNK_SIZE id
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (knownIds.isPresent(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            existing.addAll(findByIds(FIND_EXISTING_IDS_QUERY, unknown, (rs, rowNum) -> rs.getLong("user_id")));
+        }
+        return existing;
     }
 
     @Override
     public boolean deleteUser(long id) {
-        return delete(DELETE_USER_SQL,id);
+        // Лайки пользователя и его реакции на отзывы удалятся каскадно,
+        // поэтому счётчики фильмов и рейтинги отзывов поправляем заранее
+        jdbc.update(DECREMENT_LIKED_FILMS_COUNT_SQL, id);
+        jdbc.update(REVERT_REVIEW_REACTIONS_SQL, id, id);
+        boolean deleted = delete(DELETE_USER_SQL, id);
+        if (deleted) {
+            knownIds.removed(id);
+        }
+        return deleted;
     }
 }
 
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.dao.repository;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
 
@@ -13,11 +15,15 @@ public interface UserStorage {
 
     Collection<User> getAll();
 
+    List<User> getAll(Long afterId, int limit);
+
     Optional<User> getById(long id);
 
     Optional<User> findByEmail(String email);
 
     boolean validateId(long id);
 
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     boolean deleteUser(long id);
 }
\ No newline at end of file
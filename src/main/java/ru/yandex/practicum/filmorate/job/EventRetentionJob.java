@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.FriendTimeline;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Очистка журнала событий: удаляются события старше max-age-days и всё сверх max-events-per-user
+// последних событий пользователя (0 - ограничение не применяется). Удаление идёт пачками по batch-size
+// строк по первичному ключу, каждая пачка фиксируется сразу, так что блокировки держатся недолго.
+// Если задан archive-dir, пачка перед удалением дописывается в events-archive.jsonl.gz отдельным
+// gzip-членом (zcat читает файл целиком); не удалось дописать архив - очистка останавливается
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventRetentionJob {
+    private static final String ARCHIVE_FILE = "events-archive.jsonl.gz";
+
+    private final EventRepository eventRepository;
+    private final FriendTimeline friendTimeline;
+    private final ObjectMapper objectMapper;
+
+    @Value("${filmorate.events.retention.enabled:false}")
+    private boolean enabled;
+    @Value("${filmorate.events.retention.max-age-days:0}")
+    private int maxAgeDays;
+    @Value("${filmorate.events.retention.max-events-per-user:0}")
+    private int maxEventsPerUser;
+    @Value("${filmorate.events.retention.batch-size:1000}")
+    private int batchSize;
+    @Value("${filmorate.events.retention.archive-dir:}")
+    private String archiveDir;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong prunedByAge = new AtomicLong();
+    private final AtomicLong prunedByUserLimit = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile long maxRunMillis;
+
+    @Scheduled(cron = "${filmorate.events.retention.cron:0 30 4 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    // Возвращает накопленные метрики после прогона
+    public synchronized Stats run() {
+        long started = System.currentTimeMillis();
+        long byAgeBefore = prunedByAge.get();
+        long byUserLimitBefore = prunedByUserLimit.get();
+        try {
+            if (maxAgeDays > 0) {
+                pruneByAge(started - TimeUnit.DAYS.toMillis(maxAgeDays));
+            }
+            if (maxEventsPerUser > 0) {
+                pruneByUserLimit();
+            }
+        } catch (IOException e) {
+            log.error("Очистка событий остановлена: не удалось дописать архив {}: {}",
+                    Path.of(archiveDir, ARCHIVE_FILE), e.getMessage());
+        }
+
+        long byAge = prunedByAge.get() - byAgeBefore;
+        long byUserLimit = prunedByUserLimit.get() - byUserLimitBefore;
+        if (byAge + byUserLimit > 0) {
+            // В буферах ленты друзей могли остаться id удалённых событий
+            friendTimeline.dropBuffers();
+        }
+        long millis = System.currentTimeMillis() - started;
+        lastRunMillis = millis;
+        maxRunMillis = Math.max(maxRunMillis, millis);
+        runs.incrementAndGet();
+        log.info("Очистка событий: удалено {} по возрасту, {} сверх лимита на пользователя за {} мс",
+                byAge, byUserLimit, millis);
+        return stats();
+    }
+
+    public Stats stats() {
+        return new Stats(runs.get(), prunedByAge.get(), prunedByUserLimit.get(), archived.get(),
+                lastRunMillis, maxRunMillis);
+    }
+
+    private void pruneByAge(long cutoff) throws IOException {
+        List<Event> batch;
+        do {
+            batch = eventRepository.findOlderThan(cutoff, batchSize);
+            delete(batch, prunedByAge);
+        } while (batch.size() == batchSize);
+    }
+
+    // Новые события, записанные во время очистки, не в счёт: лишнее удалится при следующем запуске
+    private void pruneByUserLimit() throws IOException {
+        Map<Long, Long> counts = eventRepository.countEventsOverLimit(maxEventsPerUser);
+        for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+            long excess = entry.getValue() - maxEventsPerUser;
+            while (excess > 0) {
+                List<Event> batch = eventRepository.findOldestUserEvents(entry.getKey(), (int) Math.min(batchSize, excess));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                delete(batch, prunedByUserLimit);
+                excess -= batch.size();
+            }
+        }
+    }
+
+    private void delete(List<Event> events, AtomicLong counter) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!archiveDir.isBlank()) {
+            archive(events);
+            archived.addAndGet(events.size());
+        }
+        counter.addAndGet(eventRepository.deleteAllById(events.stream()
+                .map(Event::getEventId)
+                .toList()));
+    }
+
+    private void archive(List<Event> events) throws IOException {
+        Path path = Path.of(archiveDir, ARCHIVE_FILE);
+        Files.createDirectories(path.getParent());
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)), StandardCharsets.UTF_8)) {
+            for (Event event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+            }
+        }
+    }
+
+    public record Stats(long runs, long prunedByAge, long prunedByUserLimit, long archived,
+                        long lastRunMillis, long maxRunMillis) {
+    }
+}
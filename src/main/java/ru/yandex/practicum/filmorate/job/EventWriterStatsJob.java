@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.EventWriter;
+
+// Метрики фоновой записи событий: глубина очереди, число записанных и время записи пачки
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventWriterStatsJob {
+    private final EventWriter eventWriter;
+
+    private long lastWritten;
+
+    @Scheduled(fixedDelayString = "${filmorate.events.stats-interval-ms:60000}")
+    public void report() {
+        EventWriter.Stats stats = eventWriter.stats();
+        if (!stats.async() || stats.written() == lastWritten && stats.queueDepth() == 0) {
+            return;
+        }
+        lastWritten = stats.written();
+        log.info("Очередь событий: в очереди {}, записано {}, не записано {}, синхронно {}, пачек {}, " +
+                        "последняя пачка {} мс, максимум {} мс",
+                stats.queueDepth(), stats.written(), stats.failed(), stats.writtenSynchronously(),
+                stats.batches(), stats.lastFlushMillis(), stats.maxFlushMillis());
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationCache;
+import ru.yandex.practicum.filmorate.service.RecommendationEngine;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikesCountReconciliationJob {
+    private final LikeRepository likeRepository;
+    private final PopularityIndex popularityIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final RecommendationCache recommendationCache;
+
+    @Scheduled(cron = "${filmorate.likes.reconciliation-cron:0 0 4 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    // Вызывается вручную после массовой загрузки лайков в обход LikeService
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        int fixed = likeRepository.recalculateLikesCount();
+        popularityIndex.reload();
+        recommendationEngine.reload();
+        recommendationCache.invalidateAll();
+        log.info("Пересчёт счётчиков лайков: исправлено {} фильмов за {} мс",
+                fixed, System.currentTimeMillis() - started);
+        return fixed;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.RecommendationCache;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecommendationCacheRefreshJob {
+    private final RecommendationCache recommendationCache;
+
+    @Value("${filmorate.recommendations.refresh-batch:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-delay-ms:30000}")
+    public void refresh() {
+        int refreshed = recommendationCache.refreshHottest(batchSize);
+        if (refreshed > 0) {
+            log.debug("Обновлено {} рекомендаций в кэше", refreshed);
+        }
+    }
+}
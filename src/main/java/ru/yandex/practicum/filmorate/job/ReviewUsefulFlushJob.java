@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.ReviewUsefulCounter;
+
+// Периодическая запись накопленного рейтинга отзывов (при filmorate.reviews.useful-write-behind=true)
+@Component
+@RequiredArgsConstructor
+public class ReviewUsefulFlushJob {
+    private final ReviewUsefulCounter reviewUsefulCounter;
+
+    @Scheduled(fixedDelayString = "${filmorate.reviews.useful-flush-interval-ms:200}")
+    public void flush() {
+        reviewUsefulCounter.flush();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.ReviewRepository;
+import ru.yandex.practicum.filmorate.service.ReviewUsefulCounter;
+
+// Сверка reviews.useful с review_likes: списки отзывов доверяют колонке, расхождения исправляются здесь
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReviewUsefulReconciliationJob {
+    private final ReviewRepository reviewRepository;
+    private final ReviewUsefulCounter reviewUsefulCounter;
+
+    @Scheduled(cron = "${filmorate.reviews.useful-reconciliation-cron:0 15 4 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        // Пересчёт идёт вместе со сбросом разницы из памяти, иначе реакцию учтут и пересчёт, и следующий сброс
+        int fixed = reviewUsefulCounter.reconcile(reviewRepository::recalculateUseful);
+        log.info("Сверка рейтинга отзывов: исправлено {} отзывов за {} мс", fixed, System.currentTimeMillis() - started);
+        return fixed;
+    }
+}
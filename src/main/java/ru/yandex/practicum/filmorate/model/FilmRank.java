@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Место фильма в выдаче по популярности (лайки по убыванию, при равенстве - id по возрастанию).
+// Позиция последнего фильма страницы служит курсором следующей
+public record FilmRank(long filmId, long likes) {
+}
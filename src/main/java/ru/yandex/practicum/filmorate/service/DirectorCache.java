@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Режиссёры по id и связи фильм -> режиссёры. Заполняется при старте, дальше обновляется
+// сквозной записью из DirectorService и FilmService; изменения из транзакции применяются после её фиксации
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectorCache {
+    private final DirectorRepository directorRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> namesById = new HashMap<>();
+    private final Map<Long, Set<Long>> directorIdsByFilm = new HashMap<>();
+
+    @PostConstruct
+    public void reload() {
+        List<Director> directors = directorRepository.findAll();
+        Map<Long, Set<Long>> links = directorRepository.findAllDirectorIdsByFilm();
+
+        lock.writeLock().lock();
+        try {
+            namesById.clear();
+            directorIdsByFilm.clear();
+            directors.forEach(director -> namesById.put(director.getId(), director.getName()));
+            links.forEach((filmId, directorIds) -> directorIdsByFilm.put(filmId, Set.copyOf(directorIds)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Кэш режиссёров загружен: {} режиссёров, {} фильмов с режиссёрами", directors.size(), links.size());
+    }
+
+    public void put(Director director) {
+        long directorId = director.getId();
+        String name = director.getName();
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                namesById.put(directorId, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Связи в film_directors удаляются каскадно, убираем режиссёра и из индекса фильмов
+    public void remove(long directorId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                namesById.remove(directorId);
+                directorIdsByFilm.replaceAll((filmId, directorIds) -> without(directorIds, directorId));
+                directorIdsByFilm.values().removeIf(Set::isEmpty);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Как и DirectorRepository.addDirectorsToFilm, несуществующих режиссёров пропускаем
+    public void setFilmDirectors(long filmId, Set<Long> directorIds) {
+        Set<Long> requested = directorIds != null ? Set.copyOf(directorIds) : Set.of();
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                Set<Long> existing = new HashSet<>();
+                requested.stream().filter(namesById::containsKey).forEach(existing::add);
+                if (existing.isEmpty()) {
+                    directorIdsByFilm.remove(filmId);
+                } else {
+                    directorIdsByFilm.put(filmId, Set.copyOf(existing));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeFilm(long filmId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                directorIdsByFilm.remove(filmId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public Optional<Director> findById(long directorId) {
+        lock.readLock().lock();
+        try {
+            String name = namesById.get(directorId);
+            return name != null ? Optional.of(new Director(directorId, name)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean exists(long directorId) {
+        lock.readLock().lock();
+        try {
+            return namesById.containsKey(directorId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Первый из переданных id, которого нет среди режиссёров
+    public Optional<Long> findMissing(Collection<Long> directorIds) {
+        lock.readLock().lock();
+        try {
+            return directorIds.stream()
+                    .filter(id -> !namesById.containsKey(id))
+                    .findFirst();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Порядок как у DirectorRepository.findAll - по имени
+    public List<Director> findAll() {
+        lock.readLock().lock();
+        try {
+            return namesById.entrySet().stream()
+                    .map(entry -> new Director(entry.getKey(), entry.getValue()))
+                    .sorted(Comparator.comparing(Director::getName).thenComparing(Director::getId))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> findDirectorIdsByFilm(long filmId) {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(directorIdsByFilm.getOrDefault(filmId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Режиссёры каждого фильма по возрастанию id
+    public Map<Long, List<Director>> findDirectorsByFilmIds(Collection<Long> filmIds) {
+        Map<Long, List<Director>> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long filmId : filmIds) {
+                Set<Long> directorIds = directorIdsByFilm.get(filmId);
+                if (directorIds == null) {
+                    continue;
+                }
+                result.put(filmId, directorIds.stream()
+                        .sorted()
+                        .map(id -> new Director(id, namesById.get(id)))
+                        .toList());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Режиссёры из переданных id по возрастанию id, несуществующие пропускаются
+    public List<Director> findDirectors(Collection<Long> directorIds) {
+        lock.readLock().lock();
+        try {
+            return directorIds.stream()
+                    .filter(namesById::containsKey)
+                    .sorted()
+                    .map(id -> new Director(id, namesById.get(id)))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<Long> without(Set<Long> directorIds, long directorId) {
+        if (!directorIds.contains(directorId)) {
+            return directorIds;
+        }
+        Set<Long> result = new HashSet<>(directorIds);
+        result.remove(directorId);
+        return Set.copyOf(result);
+    }
+}
@@ -10,8 +10,6 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 @Service
@@ -20,42 +18,45 @@ public class DirectorService {
     private final DirectorMapper directorMapper;
 
     private final DirectorRepository directorRepository;
+    private final FilmSearchIndex filmSearchIndex;
+    private final DirectorCache directorCache;
 
     public DirectorDto create(NewDirectorRequest director) {
         Director directorNew = directorRepository.create(director);
+        directorCache.put(directorNew);
+        filmSearchIndex.putDirector(directorNew.getId(), directorNew.getName());
         return directorMapper.mapToDirectorDto(directorNew);
     }
 
     public DirectorDto update(DirectorDto director) {
-        if (directorRepository.findById(director.getId()).isEmpty()) {
+        if (!directorCache.exists(director.getId())) {
             throw new NotFoundException("Режиссера с id " + director.getId() + "не существует");
         }
         Director directorUpdate = directorRepository.update(director);
+        directorCache.put(directorUpdate);
+        filmSearchIndex.putDirector(directorUpdate.getId(), directorUpdate.getName());
         return directorMapper.mapToDirectorDto(directorUpdate);
     }
 
     public void delete(Long id) {
         directorRepository.delete(id);
+        directorCache.remove(id);
+        filmSearchIndex.removeDirector(id);
     }
 
     public Collection<DirectorDto> getAll() {
-        return directorRepository.findAll().stream()
+        return directorCache.findAll().stream()
                 .map(directorMapper::mapToDirectorDto)
                 .toList();
     }
 
     public DirectorDto getById(Long id) {
-        return directorRepository.findById(id)
+        return directorCache.findById(id)
                 .map(directorMapper::mapToDirectorDto)
                 .orElseThrow(() -> new NotFoundException("Режиссёр с id=" + id + " не найден"));
     }
 
     public Set<Long> getDirectorsIdsByFilm(long id) {
-        List<Director> directors = directorRepository.findDirectorsByFilmId(id);
-        Set<Long> result = new HashSet<>();
-        for (Director d : directors) {
-            result.add(d.getId());
-        }
-        return result;
+        return directorCache.findDirectorIdsByFilm(id);
     }
 }
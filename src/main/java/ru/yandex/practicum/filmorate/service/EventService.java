@@ -5,19 +5,26 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.dto.event.EventDto;
 import ru.yandex.practicum.filmorate.dao.dto.event.EventMapper;
 import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
+// События ставятся в очередь записи только после фиксации транзакции, в которой они произошли.
+// Ленты читают только записанные события: при фоновой записи событие появляется в них
+// с задержкой до filmorate.events.max-delay-ms плюс время записи пачки
 @Service
 @RequiredArgsConstructor
 public class EventService {
 
     private final EventRepository eventRepository;
     private final EventMapper eventMapper;
+    private final EventWriter eventWriter;
+    private final FriendTimeline friendTimeline;
 
     public void addEvent(long userId,
                          EventType eventType,
@@ -32,13 +39,50 @@ public class EventService {
                 .entityId(entityId)
                 .build();
 
-        eventRepository.addEvent(event);
+        AfterCommit.run(() -> eventWriter.add(event));
     }
 
-    public List<EventDto> getUserFeed(long userId) {
+    // События одного типа пачкой: пары (userId, entityId) в порядке добавления
+    public void addEvents(EventType eventType, EventOperation operation, List<Map.Entry<Long, Long>> userAndEntityIds) {
+        long timestamp = Instant.now().toEpochMilli();
+        List<Event> events = userAndEntityIds.stream()
+                .map(ids -> Event.builder()
+                        .timestamp(timestamp)
+                        .userId(ids.getKey())
+                        .eventType(eventType)
+                        .operation(operation)
+                        .entityId(ids.getValue())
+                        .build())
+                .toList();
+        AfterCommit.run(() -> eventWriter.addAll(events));
+    }
+
+    public List<EventDto> getUserFeed(long userId, Long sinceId, Long beforeId, int limit) {
+        Event since = sinceId != null ? findCursor(userId, sinceId, "since") : null;
+        Event before = beforeId != null ? findCursor(userId, beforeId, "before") : null;
+        return eventRepository.getUserFeed(userId, since, before, limit).stream()
+                .map(eventMapper::toDto)
+                .toList();
+    }
 
-        return eventRepository.getUserFeed(userId).stream()
+    // Лента событий друзей: последние limit событий перед before, по возрастанию как getUserFeed
+    public List<EventDto> getFriendsFeed(long userId, Long beforeId, int limit) {
+        Event before = null;
+        if (beforeId != null) {
+            before = eventRepository.findById(beforeId)
+                    .orElseThrow(() -> new ValidationException(
+                            "Параметр 'before': событие с id=" + beforeId + " не найдено"
+                    ));
+        }
+        return friendTimeline.getPage(userId, before, limit).stream()
                 .map(eventMapper::toDto)
                 .toList();
     }
+
+    private Event findCursor(long userId, long eventId, String parameter) {
+        return eventRepository.findUserEvent(userId, eventId)
+                .orElseThrow(() -> new ValidationException(
+                        "Параметр '" + parameter + "': событие с id=" + eventId + " не найдено в ленте пользователя " + userId
+                ));
+    }
 }
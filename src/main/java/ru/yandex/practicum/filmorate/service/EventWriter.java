@@ -0,0 +1,252 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Запись событий ленты в фоне: очередь ограничена, фоновый поток пишет пачками до batchSize событий,
+// событие ждёт в очереди не дольше maxDelayMs. Если очередь заполнена дольше offerTimeoutMs,
+// событие пишется синхронно в потоке запроса - так перегрузка замедляет запросы, а не теряет события.
+// При async=false все события пишутся сразу, как раньше
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventWriter {
+    private final EventRepository eventRepository;
+    private final FriendTimeline friendTimeline;
+
+    @Value("${filmorate.events.async:true}")
+    private boolean async;
+    @Value("${filmorate.events.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${filmorate.events.batch-size:500}")
+    private int batchSize;
+    @Value("${filmorate.events.max-delay-ms:50}")
+    private long maxDelayMs;
+    @Value("${filmorate.events.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+    @Value("${filmorate.events.flush-timeout-ms:5000}")
+    private long flushTimeoutMs;
+
+    private BlockingQueue<Event> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean flushRequested;
+
+    // enqueued - поставлено в очередь, processed - записано или отброшено фоновым потоком
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writtenSynchronously = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private final Object progress = new Object();
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            log.info("События ленты пишутся синхронно");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Фоновая запись событий: очередь {}, пачка {}, задержка до {} мс", queueCapacity, batchSize, maxDelayMs);
+    }
+
+    // Дописывает всё, что успело попасть в очередь, до закрытия пула соединений.
+    // Поток не прерываем: прерывание посреди записи закрывает файл H2
+    @PreDestroy
+    public void stop() {
+        if (!async) {
+            return;
+        }
+        running = false;
+        flushRequested = true;
+        try {
+            writerThread.join(flushTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Фоновая запись событий не завершилась за {} мс, в очереди {}", flushTimeoutMs, queue.size());
+            return;
+        }
+        log.info("Фоновая запись событий остановлена: {}", stats());
+    }
+
+    public void add(Event event) {
+        if (!async) {
+            writeNow(event);
+            return;
+        }
+        boolean accepted;
+        try {
+            accepted = queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            log.warn("Очередь событий заполнена ({}), событие пользователя {} пишется синхронно",
+                    queueCapacity, event.getUserId());
+            writeNow(event);
+            writtenSynchronously.incrementAndGet();
+        }
+    }
+
+    public void addAll(List<Event> events) {
+        if (!async) {
+            eventRepository.addEvents(events);
+            friendTimeline.publish(events);
+            return;
+        }
+        events.forEach(this::add);
+    }
+
+    // Ждёт, пока будут записаны все события, поставленные в очередь до вызова, но не дольше flushTimeoutMs.
+    // Только для тестов: ленты его не вызывают, чтобы чтение не ждало чужих пачек
+    void flush() {
+        if (!async) {
+            return;
+        }
+        long target = enqueued.get();
+        if (processed.get() >= target) {
+            return;
+        }
+        flushRequested = true;
+        long deadline = System.currentTimeMillis() + flushTimeoutMs;
+        synchronized (progress) {
+            long remaining;
+            while (processed.get() < target && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (processed.get() < target) {
+            log.warn("Не дождались записи событий за {} мс: в очереди {}", flushTimeoutMs, queue.size());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(async, queue != null ? queue.size() : 0, written.get(), failed.get(),
+                writtenSynchronously.get(), batches.get(), lastFlushMillis, maxFlushMillis);
+    }
+
+    private void runWriter() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    flushRequested = false;
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.currentTimeMillis() + maxDelayMs);
+                flushRequested = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Фоновая запись событий прервана, в очереди {}", queue.size());
+                return;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Добирает пачку до batchSize, пока не истечёт задержка или не попросят flush
+    private void fillBatch(List<Event> batch, long deadline) throws InterruptedException {
+        queue.drainTo(batch, batchSize - batch.size());
+        long remaining;
+        while (batch.size() < batchSize && !flushRequested
+                && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            Event next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    // Любая ошибка записи остаётся внутри: фоновый поток один, и его остановка потеряла бы очередь
+    private void write(List<Event> batch) {
+        long startedAt = System.nanoTime();
+        try {
+            eventRepository.addEvents(batch);
+            written.addAndGet(batch.size());
+            publish(batch);
+        } catch (RuntimeException e) {
+            // Например, пользователь удалён раньше, чем записалось его событие: пишем по одному,
+            // чтобы из-за одной строки не потерять всю пачку
+            log.warn("Не удалось записать пачку из {} событий, пишем по одному: {}", batch.size(), e.getMessage());
+            writeOneByOne(batch);
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            lastFlushMillis = millis;
+            maxFlushMillis = Math.max(maxFlushMillis, millis);
+            batches.incrementAndGet();
+            processed.addAndGet(batch.size());
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private void writeOneByOne(List<Event> batch) {
+        for (Event event : batch) {
+            try {
+                eventRepository.addEvent(event);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                log.warn("Событие {} не записано: {}", event, e.getMessage());
+                continue;
+            }
+            written.incrementAndGet();
+            publish(List.of(event));
+        }
+    }
+
+    // События уже в БД: ошибка ленты в памяти не должна приводить к их повторной записи
+    private void publish(List<Event> events) {
+        try {
+            friendTimeline.publish(events);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось добавить {} событий в ленты друзей: {}", events.size(), e.getMessage());
+        }
+    }
+
+    private void writeNow(Event event) {
+        eventRepository.addEvent(event);
+        friendTimeline.publish(List.of(event));
+    }
+
+    public record Stats(boolean async, int queueDepth, long written, long failed, long writtenSynchronously,
+                        long batches, long lastFlushMillis, long maxFlushMillis) {
+    }
+}
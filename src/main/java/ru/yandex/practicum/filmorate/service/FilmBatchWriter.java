@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Одна пачка новых фильмов в своей транзакции: фильмы, жанры и режиссёры -
+// по одному пакетному запросу на таблицу. Отдельный бин, чтобы @Transactional работал при вызове из FilmService
+@Service
+@RequiredArgsConstructor
+public class FilmBatchWriter {
+    private final FilmStorage filmStorage;
+    private final GenreRepository genreRepository;
+    private final DirectorRepository directorRepository;
+
+    @Transactional
+    public List<Film> write(List<Film> films) {
+        List<Film> created = filmStorage.createAll(films);
+
+        Map<Long, Set<Long>> genreIdsByFilm = new HashMap<>();
+        Map<Long, Set<Long>> directorIdsByFilm = new HashMap<>();
+        for (Film film : created) {
+            genreIdsByFilm.put(film.getId(), film.getGenres());
+            directorIdsByFilm.put(film.getId(), film.getDirectors());
+        }
+        genreRepository.addGenresToFilms(genreIdsByFilm);
+        directorRepository.addDirectorsToFilms(directorIdsByFilm);
+        return created;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmHydrator;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Выгрузка всего каталога: фильмы читаются курсором пачками, связи подгружаются на пачку,
+// каждая пачка сразу пишется в поток ответа
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmExportService {
+    private final FilmStorage filmStorage;
+    private final FilmHydrator filmHydrator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${filmorate.export.fetch-size:500}")
+    private int fetchSize;
+    @Value("${filmorate.export.batch-size:500}")
+    private int batchSize;
+
+    public void export(OutputStream out, boolean ndjson) {
+        long started = System.currentTimeMillis();
+        int[] exported = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            if (ndjson) {
+                // Каждый фильм - отдельная строка, без пробела-разделителя между корневыми значениями
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+            filmStorage.forEachBatch(fetchSize, batchSize, films -> {
+                try {
+                    for (FilmDto film : filmHydrator.hydrate(films)) {
+                        objectMapper.writeValue(generator, film);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    generator.flush();
+                    exported[0] += films.size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Выгрузка фильмов прервана после {} фильмов: {}", exported[0], e.getMessage());
+            throw new InternalServerException("Не удалось выгрузить фильмы");
+        }
+        log.info("Выгружено {} фильмов за {} мс", exported[0], System.currentTimeMillis() - started);
+    }
+}
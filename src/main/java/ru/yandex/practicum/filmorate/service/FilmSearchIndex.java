@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Индекс поиска по подстроке: для названий, описаний и имён режиссёров хранится триграмма -> id.
+// Кандидаты - пересечение списков по всем триграммам запроса, затем проверка contains.
+// Изменения из транзакции применяются после её фиксации
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int GRAM = 3;
+
+    private final FilmStorage filmStorage;
+    private final DirectorRepository directorRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex titles = new TrigramIndex();
+    private final TrigramIndex descriptions = new TrigramIndex();
+    private final TrigramIndex directors = new TrigramIndex();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+
+    @PostConstruct
+    public void reload() {
+        Collection<Film> allFilms = filmStorage.getAll();
+        List<Director> allDirectors = directorRepository.findAll();
+        Map<Long, Set<Long>> directorIdsByFilm = directorRepository.findAllDirectorIdsByFilm();
+
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            descriptions.clear();
+            directors.clear();
+            directorsByFilm.clear();
+            filmsByDirector.clear();
+            allDirectors.forEach(director -> directors.put(director.getId(), director.getName()));
+            allFilms.forEach(film -> putFilmUnlocked(film.getId(), film.getName(), film.getDescription(),
+                    directorIdsByFilm.getOrDefault(film.getId(), Set.of())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс загружен: {} фильмов, {} режиссёров", allFilms.size(), allDirectors.size());
+    }
+
+    public void putFilm(long filmId, String name, String description, Set<Long> directorIds) {
+        Set<Long> linked = directorIds != null ? Set.copyOf(directorIds) : Set.of();
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                putFilmUnlocked(filmId, name, description, linked);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeFilm(long filmId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                titles.remove(filmId);
+                descriptions.remove(filmId);
+                unlinkDirectors(filmId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void putDirector(long directorId, String name) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                directors.put(directorId, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeDirector(long directorId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                directors.remove(directorId);
+                Set<Long> films = filmsByDirector.remove(directorId);
+                if (films != null) {
+                    films.forEach(filmId -> directorsByFilm.get(filmId).remove(directorId));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Те же правила выбора полей, что и в FilmRepository.searchFilms; id фильмов по возрастанию
+    public Set<Long> search(String query, Set<String> searchBy) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            boolean byTitle = searchBy.contains("title");
+            boolean byDirector = searchBy.contains("director");
+            if (byTitle && byDirector) {
+                return findByTitleOrDirector(needle);
+            } else if (byTitle) {
+                return titles.find(needle);
+            } else if (searchBy.contains("description")) {
+                return descriptions.find(needle);
+            } else if (byDirector) {
+                return findByDirector(needle);
+            }
+            return findByTitleOrDirector(needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> findByTitleOrDirector(String needle) {
+        Set<Long> result = titles.find(needle);
+        result.addAll(findByDirector(needle));
+        return result;
+    }
+
+    private Set<Long> findByDirector(String needle) {
+        Set<Long> result = new TreeSet<>();
+        for (Long directorId : directors.find(needle)) {
+            result.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+        }
+        return result;
+    }
+
+    private void putFilmUnlocked(long filmId, String name, String description, Set<Long> directorIds) {
+        titles.put(filmId, name);
+        descriptions.put(filmId, description);
+        unlinkDirectors(filmId);
+        Set<Long> linked = new HashSet<>();
+        for (Long directorId : directorIds) {
+            // Несуществующих режиссёров DirectorRepository.addDirectorsToFilm не сохраняет
+            if (directors.contains(directorId)) {
+                linked.add(directorId);
+                filmsByDirector.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId);
+            }
+        }
+        directorsByFilm.put(filmId, linked);
+    }
+
+    private void unlinkDirectors(long filmId) {
+        Set<Long> previous = directorsByFilm.remove(filmId);
+        if (previous == null) {
+            return;
+        }
+        for (Long directorId : previous) {
+            Set<Long> films = filmsByDirector.get(directorId);
+            if (films != null) {
+                films.remove(filmId);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static class TrigramIndex {
+        private final Map<Long, String> texts = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(long id, String text) {
+            remove(id);
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            for (String trigram : trigrams(normalized)) {
+                postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(long id) {
+            String previous = texts.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String trigram : trigrams(previous)) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        boolean contains(long id) {
+            return texts.containsKey(id);
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+        }
+
+        Set<Long> find(String needle) {
+            Set<Long> result = new TreeSet<>();
+            if (needle.length() < GRAM) {
+                // Короткий запрос не покрывается триграммами - проверяем все тексты
+                texts.forEach((id, text) -> {
+                    if (text.contains(needle)) {
+                        result.add(id);
+                    }
+                });
+                return result;
+            }
+
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String trigram : trigrams(needle)) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids == null) {
+                    return result;
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            for (Long id : lists.get(0)) {
+                if (containedInAll(lists, id) && texts.get(id).contains(needle)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        private static boolean containedInAll(List<Set<Long>> lists, Long id) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -2,8 +2,13 @@ package ru.yandex.practicum.filmorate.service;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmBatchItemResult;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmBatchResult;
 import ru.yandex.practicum.filmorate.dao.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dao.dto.film.FilmHydrator;
 import ru.yandex.practicum.filmorate.dao.dto.film.NewFilmRequest;
 import ru.yandex.practicum.filmorate.dao.dto.film.UpdateFilmRequest;
 import ru.yandex.practicum.filmorate.dao.repository.*;
@@ -12,26 +17,38 @@ import ru.yandex.practicum.filmorate.dao.dto.film.FilmMapper;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+import ru.yandex.practicum.filmorate.model.enums.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
     private final FilmStorage filmStorage;
     private final GenreService genreService;
-    private final LikeService likeService;
-    private final LikeRepository likeRepository;
     private final FilmMapper filmMapper;
+    private final FilmHydrator filmHydrator;
     private final DirectorRepository directorRepository;
-    private final DirectorService directorService;
     private final UserStorage userStorage;
-    private final UserRepository userRepository;
     private final Validation validation;
+    private final PopularityIndex popularityIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final RecommendationCache recommendationCache;
+    private final FilmSearchIndex filmSearchIndex;
+    private final DirectorCache directorCache;
+    private final FilmBatchWriter filmBatchWriter;
 
+    @Value("${filmorate.search.index-enabled:true}")
+    private boolean searchIndexEnabled;
+
+    @Value("${filmorate.films.batch-chunk-size:500}")
+    private int batchChunkSize;
+
+    @Transactional
     public FilmDto create(NewFilmRequest request) {
 
         Film film = filmMapper.mapToFilm(request);
@@ -44,8 +61,68 @@ public class FilmService {
         Set<Long> directors = request.getDirectors();
         film.setDirectors(directors);
         directorRepository.addDirectorsToFilm(film.getId(), directors);
+        directorCache.setFilmDirectors(film.getId(), directors);
+
+        popularityIndex.putFilm(film.getId(), film.getReleaseDate(), genres);
+        filmSearchIndex.putFilm(film.getId(), film.getName(), film.getDescription(), directors);
+        return filmHydrator.hydrateWritten(film);
+    }
+
+    // Некорректные элементы отклоняются, остальные пишутся пачками по batchChunkSize, каждая в своей транзакции.
+    // Любая ошибка записи откатывает только свою пачку, её фильмы получают статус FAILED,
+    // а уже сохранённые пачки возвращают свои id
+    public FilmBatchResult createBatch(List<NewFilmRequest> requests) {
+        FilmBatchItemResult[] results = new FilmBatchItemResult[requests.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<Film> acceptedFilms = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            NewFilmRequest request = requests.get(i);
+            try {
+                validation.validateNewFilm(request);
+            } catch (ValidationException | NotFoundException e) {
+                results[i] = new FilmBatchItemResult(i, null, BatchItemStatus.REJECTED, e.getMessage());
+                continue;
+            }
+            Film film = filmMapper.mapToFilm(request);
+            film.setDirectors(request.getDirectors());
+            acceptedIndexes.add(i);
+            acceptedFilms.add(film);
+        }
+
+        for (int from = 0; from < acceptedFilms.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, acceptedFilms.size());
+            List<Film> chunk = acceptedFilms.subList(from, to);
+            try {
+                filmBatchWriter.write(chunk);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить пачку фильмов {}-{}: {}", from, to - 1, e.getMessage());
+                for (int j = from; j < to; j++) {
+                    int index = acceptedIndexes.get(j);
+                    results[index] = new FilmBatchItemResult(index, null, BatchItemStatus.FAILED,
+                            "Не удалось сохранить фильм");
+                }
+                continue;
+            }
+            for (int j = from; j < to; j++) {
+                Film film = acceptedFilms.get(j);
+                int index = acceptedIndexes.get(j);
+                results[index] = new FilmBatchItemResult(index, film.getId(), BatchItemStatus.CREATED, null);
+                directorCache.setFilmDirectors(film.getId(), film.getDirectors());
+                popularityIndex.putFilm(film.getId(), film.getReleaseDate(), film.getGenres());
+                filmSearchIndex.putFilm(film.getId(), film.getName(), film.getDescription(), film.getDirectors());
+            }
+        }
 
-        return filmMapper.mapToFilmDto(film);
+        FilmBatchResult result = new FilmBatchResult();
+        result.setItems(List.of(results));
+        result.setCreated(countByStatus(results, BatchItemStatus.CREATED));
+        result.setRejected(countByStatus(results, BatchItemStatus.REJECTED));
+        result.setFailed(countByStatus(results, BatchItemStatus.FAILED));
+        return result;
+    }
+
+    private static int countByStatus(FilmBatchItemResult[] results, BatchItemStatus status) {
+        return (int) Arrays.stream(results).filter(item -> item.getStatus() == status).count();
     }
 
     @Transactional
@@ -60,109 +137,73 @@ public class FilmService {
         updatedFilm.setGenres(genres);
         genreService.saveByFilm(updatedFilm.getId(), genres);
 
-        Set<Long> likes = likeService.getLikesIdsByFilm(request.getId());
-        updatedFilm.setLikes(likes);
-
         Set<Long> directors = request.getDirectors();
         updatedFilm.setDirectors(directors);
         directorRepository.addDirectorsToFilm(request.getId(), directors);
+        directorCache.setFilmDirectors(request.getId(), directors);
 
        // likeRepository.deleteLikesAllByFilmId(request.getId();
 
-        return filmMapper.mapToFilmDto(updatedFilm);
+        popularityIndex.putFilm(updatedFilm.getId(), updatedFilm.getReleaseDate(), genres);
+        filmSearchIndex.putFilm(updatedFilm.getId(), updatedFilm.getName(), updatedFilm.getDescription(), directors);
+        return filmHydrator.hydrateWritten(updatedFilm);
     }
 
-    public Collection<FilmDto> getAll() {
-        return filmStorage.getAll().stream()
-                .map(this::updateCollections)
-                .map(filmMapper::mapToFilmDto)
-                .collect(Collectors.toList());
+    public List<FilmDto> getAll(Long afterId, int limit) {
+        return filmHydrator.hydrate(filmStorage.getAll(afterId, limit));
     }
 
     public FilmDto getById(long id) {
         Film film = filmStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
-        return filmMapper.mapToFilmDto(updateCollections(film));
+        return filmHydrator.hydrate(film);
     }
 
 
     public List<FilmDto> getPopularFilms(Integer genreId, Integer year, int count) {
-        return filmStorage.getPopularFilms(genreId, year, count).stream()
-                .map(this::updateCollections)
-                .map(filmMapper::mapToFilmDto)
-                .toList();
-    }
-
-    private Film updateCollections(Film film) {
-        long id = film.getId();
-        film.setGenres(genreService.getGenresIdByFilm(id));
-        film.setLikes(likeService.getLikesIdsByFilm(id));
-        film.setDirectors(directorService.getDirectorsIdsByFilm(id));
-        return film;
+        List<Long> filmIds = popularityIndex.getTopFilmIds(genreId, year, count);
+        return filmHydrator.hydrate(filmStorage.getByIds(filmIds));
     }
 
     public List<FilmDto> getFilmsByDirector(long directorId, String sortBy) {
-        if (directorRepository.findById(directorId).isEmpty()) {
+        if (!directorCache.exists(directorId)) {
             throw new NotFoundException("Режиссера с id " + directorId + "не существует");
         }
-        return filmStorage.findByDirectorIdSorted(directorId, sortBy).stream()
-                .map(this::updateCollections) // чтобы заполнить жанры, лайки, режиссёров
-                .map(filmMapper::mapToFilmDto)
-                .toList();
-    }
-
-    public Map<Long, Collection<Film>> getLikedFilmsByAllUsers() {
-        List<Long> allUsersIds = userRepository.getAll().stream()
-                .map(User::getId)
-                .toList();
-
-        Map<Long, Collection<Film>> likedFilmsByAllUsers = new HashMap<>();
-        for (Long id : allUsersIds) {
-            likedFilmsByAllUsers.put(id, filmStorage.getLikedFilmsByUserId(id));
-        }
-
-        return likedFilmsByAllUsers;
-
+        return filmHydrator.hydrate(filmStorage.findByDirectorIdSorted(directorId, sortBy));
     }
 
     public Collection<FilmDto> getRecommendations(long userId) {
-        User user = userStorage.getById(userId)
+        userStorage.getById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
 
-        Collection<Film> userLikedFilms = filmStorage.getLikedFilmsByUserId(userId);
-        if (userLikedFilms.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        Map<Long, Collection<Film>> likedFilmsByAllUsers = getLikedFilmsByAllUsers();
-        Set<Film> userLikesSet = new HashSet<>(userLikedFilms);
-
-        Optional<Map.Entry<Long, Collection<Film>>> targetUserEntry = likedFilmsByAllUsers.entrySet().stream()
-                .filter(entry -> !entry.getKey().equals(userId))
-                .max(Comparator.comparingInt(entry -> {
-                    Set<Film> otherLikesSet = new HashSet<>(entry.getValue());
-                    Set<Film> intesection = new HashSet<>(userLikesSet);
-                    intesection.retainAll(otherLikesSet);
-                    return intesection.size();
-                }));
-
-        if (targetUserEntry.isEmpty()) {
+        List<Long> filmIds = recommendationCache.getFilmIds(RecommendationQuery.nearest(userId));
+        if (filmIds.isEmpty()) {
             return Collections.emptyList();
         }
+        return filmHydrator.hydrate(filmStorage.getByIds(filmIds));
+    }
 
-        Collection<Film> targetUserLikedFilms = targetUserEntry.get().getValue();
-        Set<Film> targetLikesSet = new HashSet<>(targetUserLikedFilms);
+    public Collection<FilmDto> getRecommendations(long userId, String mode, int k, int limit, String metric) {
+        return switch (mode) {
+            case "nearest" -> getRecommendations(userId);
+            case "knn" -> getKnnRecommendations(userId, k, limit, metric);
+            default -> throw new ValidationException(
+                    "Недопустимое значение в параметре 'mode': " + mode + ". Допустимые значения: nearest, knn"
+            );
+        };
+    }
 
-        targetLikesSet.removeAll(userLikedFilms);
+    public Collection<FilmDto> getKnnRecommendations(long userId, int k, int limit, String metric) {
+        SimilarityMetric similarityMetric = validation.validateRecommendationParameters(k, limit, metric);
+        userStorage.getById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
 
-        if (targetLikesSet.isEmpty()) {
+        List<Long> filmIds = recommendationCache.getFilmIds(
+                RecommendationQuery.knn(userId, similarityMetric, k, limit));
+        if (filmIds.isEmpty()) {
             return Collections.emptyList();
         }
-
-        return targetLikesSet.stream()
-                .map(this::updateCollections)
-                .map(filmMapper::mapToFilmDto)
-                .toList();
+        return filmHydrator.hydrate(filmStorage.getByIds(filmIds));
     }
 
     public List<FilmDto> getCommonFilms(long userId, long friendId) {
@@ -174,10 +215,7 @@ public class FilmService {
         }
 
         List<Film> commonFilms = filmStorage.getCommonFilms(userId, friendId);
-        return commonFilms.stream()
-                .map(this::updateCollections)
-                .map(filmMapper::mapToFilmDto)
-                .toList();
+        return filmHydrator.hydrate(commonFilms);
     }
 
     public void deleteFilm(long id) {
@@ -186,17 +224,35 @@ public class FilmService {
         if (!deleted) {
             throw new InternalServerException("Не удалось удалить фильм с id=" + id);
         }
+        popularityIndex.removeFilm(id);
+        recommendationEngine.removeFilm(id);
+        recommendationCache.invalidateAll();
+        filmSearchIndex.removeFilm(id);
+        directorCache.removeFilm(id);
     }
 
-    public List<FilmDto> searchFilms(String query, Set<String> searchBy) {
+    // Курсор страницы - позиция (afterLikes, afterId) последнего фильма предыдущей. Без afterLikes
+    // берётся текущее число лайков фильма afterId: если оно изменилось, страницы могут сдвинуться
+    public SearchPage searchFilms(String query, Set<String> searchBy, Long afterLikes, Long afterId, int limit) {
         if (query == null || query.trim().isEmpty()) {
-            return Collections.emptyList();
+            return new SearchPage(Collections.emptyList(), null);
+        }
+
+        List<FilmRank> ranks;
+        if (searchIndexEnabled) {
+            FilmRank after = null;
+            if (afterId != null) {
+                after = new FilmRank(afterId, afterLikes != null ? afterLikes : popularityIndex.getLikesCount(afterId));
+            }
+            ranks = popularityIndex.rank(filmSearchIndex.search(query.trim(), searchBy), after, limit);
+        } else {
+            ranks = filmStorage.searchFilmRanks(query.trim(), searchBy, afterLikes, afterId, limit);
         }
+        List<FilmDto> films = filmHydrator.hydrate(filmStorage.getByIds(ranks.stream().map(FilmRank::filmId).toList()));
+        return new SearchPage(films, ranks.size() >= limit ? ranks.get(ranks.size() - 1) : null);
+    }
 
-        List<Film> films = filmStorage.searchFilms(query.trim(), searchBy);
-        return films.stream()
-                .map(this::updateCollections)
-                .map(filmMapper::mapToFilmDto)
-                .collect(Collectors.toList());
+    // next - позиция последнего фильма, если страница заполнена целиком
+    public record SearchPage(List<FilmDto> films, FilmRank next) {
     }
-}
\ No newline at end of file
+}
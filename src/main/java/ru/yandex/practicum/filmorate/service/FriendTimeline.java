@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.dao.repository.FriendRepository;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.*;
+
+// Лента событий друзей (fan-out on write): id записанного события раскладывается в кольцевые буферы
+// тех, кто добавил автора в друзья. Буфер заводится при первом чтении ленты, хранит до capacity событий,
+// буферов не больше max-users (вытесняются давно не читавшиеся). События авторов, у которых больше
+// fanout-limit подписчиков, не раскладываются, а читаются из БД при запросе ленты (fan-out on read) -
+// так же читаются страницы глубже буфера и страницы больше capacity
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendTimeline {
+    private static final Comparator<Event> NEWEST_FIRST = Comparator.comparingLong(Event::getTimestamp)
+            .thenComparingLong(Event::getEventId)
+            .reversed();
+
+    private final EventRepository eventRepository;
+    private final FriendRepository friendRepository;
+
+    @Value("${filmorate.timeline.capacity:200}")
+    private int capacity;
+    @Value("${filmorate.timeline.max-users:10000}")
+    private int maxUsers;
+    @Value("${filmorate.timeline.fanout-limit:1000}")
+    private int fanoutLimit;
+
+    // Пользователь -> его друзья и обратно: автор -> кто добавил его в друзья
+    private final Map<Long, Set<Long>> friendsByUser = new HashMap<>();
+    private final Map<Long, Set<Long>> followersByUser = new HashMap<>();
+    // Порядок вставки; при чтении буфер переставляется в конец, поэтому первым вытесняется давно не читавшийся
+    private final Map<Long, Ring> rings = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Ring> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    @PostConstruct
+    public void reload() {
+        Map<Long, Set<Long>> links = friendRepository.findAllFriendIdsByUser();
+        synchronized (this) {
+            friendsByUser.clear();
+            followersByUser.clear();
+            rings.clear();
+            links.forEach((userId, friendIds) -> friendIds.forEach(friendId -> link(userId, friendId)));
+        }
+        log.info("Лента друзей загружена: {} пользователей с друзьями", links.size());
+    }
+
+    // Состав друзей изменился - буфер пользователя соберётся заново при следующем чтении.
+    // Изменения дружбы применяются после фиксации транзакции
+    public void addFriend(long userId, long friendId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                if (link(userId, friendId)) {
+                    rings.remove(userId);
+                }
+            }
+        });
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                unlink(userId, friendId);
+                rings.remove(userId);
+            }
+        });
+    }
+
+    // События пользователя удаляются каскадно, поэтому сбрасываем и буферы тех, кто его читал
+    public void removeUser(long userId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (Long friendId : new ArrayList<>(friendsByUser.getOrDefault(userId, Set.of()))) {
+                    unlink(userId, friendId);
+                }
+                for (Long followerId : new ArrayList<>(followersByUser.getOrDefault(userId, Set.of()))) {
+                    unlink(followerId, userId);
+                    rings.remove(followerId);
+                }
+                rings.remove(userId);
+            }
+        });
+    }
+
+    // События удалены в обход ленты (очистка журнала) - буферы соберутся заново при чтении
+    public synchronized void dropBuffers() {
+        rings.clear();
+    }
+
+    // Вызывается EventWriter после записи в БД, когда у событий уже есть event_id
+    public synchronized void publish(List<Event> events) {
+        for (Event event : events) {
+            Set<Long> followers = followersByUser.get(event.getUserId());
+            if (followers == null || followers.size() > fanoutLimit) {
+                continue;
+            }
+            for (Long followerId : followers) {
+                Ring ring = rings.get(followerId);
+                if (ring != null) {
+                    ring.push(event.getTimestamp(), event.getEventId());
+                }
+            }
+        }
+    }
+
+    // Последние limit событий друзей перед событием before (null - самые новые),
+    // по возрастанию (timestamp, event_id), как страницы ленты пользователя
+    public List<Event> getPage(long userId, Event before, int limit) {
+        List<Long> fannedOut = new ArrayList<>();
+        List<Long> pulled = new ArrayList<>();
+        Ring ring = null;
+        boolean created = false;
+        synchronized (this) {
+            for (Long friendId : friendsByUser.getOrDefault(userId, Set.of())) {
+                if (followersByUser.get(friendId).size() > fanoutLimit) {
+                    pulled.add(friendId);
+                } else {
+                    fannedOut.add(friendId);
+                }
+            }
+            if (!fannedOut.isEmpty() && limit <= capacity) {
+                ring = rings.remove(userId);
+                created = ring == null;
+                if (created) {
+                    ring = new Ring(capacity);
+                }
+                rings.put(userId, ring);
+            }
+        }
+        if (created) {
+            fill(ring, fannedOut);
+        }
+
+        List<Event> events = new ArrayList<>(readLatest(pulled, before, limit));
+        List<Long> ids = null;
+        if (ring != null) {
+            synchronized (this) {
+                ids = ring.idsBefore(before, limit);
+            }
+        }
+        if (ids != null) {
+            events.addAll(eventRepository.findAllById(ids));
+        } else {
+            events.addAll(readLatest(fannedOut, before, limit));
+        }
+
+        // Автор мог перейти порог fanout-limit: его события есть и в буфере, и в выборке из БД
+        Map<Long, Event> unique = new HashMap<>();
+        events.forEach(event -> unique.putIfAbsent(event.getEventId(), event));
+        List<Event> page = new ArrayList<>(unique.values().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList());
+        Collections.reverse(page);
+        return page;
+    }
+
+    // Первое заполнение буфера: последние capacity событий всех друзей одним запросом.
+    // События, разложенные в буфер, пока шла выборка, не теряются - объединяем с ними
+    private void fill(Ring ring, List<Long> friendIds) {
+        List<Event> loaded = eventRepository.findLatestBefore(friendIds, null, capacity);
+        synchronized (this) {
+            ring.load(loaded, loaded.size() == capacity);
+        }
+    }
+
+    private List<Event> readLatest(Collection<Long> authorIds, Event before, int limit) {
+        if (authorIds.isEmpty()) {
+            return List.of();
+        }
+        return eventRepository.findLatestBefore(authorIds, before, limit);
+    }
+
+    private boolean link(long userId, long friendId) {
+        followersByUser.computeIfAbsent(friendId, id -> new HashSet<>()).add(userId);
+        return friendsByUser.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId);
+    }
+
+    private void unlink(long userId, long friendId) {
+        removeFromSet(friendsByUser, userId, friendId);
+        removeFromSet(followersByUser, friendId, userId);
+    }
+
+    private static void removeFromSet(Map<Long, Set<Long>> map, long key, long value) {
+        Set<Long> values = map.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    // Кольцевой буфер пар (timestamp, event_id). Доступ - под монитором FriendTimeline
+    private static class Ring {
+        private final long[] timestamps;
+        private final long[] eventIds;
+        private int next;
+        private int size;
+        // Заполнен из БД; до этого читатели идут в БД
+        private boolean ready;
+        // Более старые события ленты в буфер не поместились
+        private boolean truncated;
+
+        Ring(int capacity) {
+            timestamps = new long[capacity];
+            eventIds = new long[capacity];
+        }
+
+        void push(long timestamp, long eventId) {
+            timestamps[next] = timestamp;
+            eventIds[next] = eventId;
+            next = (next + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            } else {
+                truncated = true;
+            }
+        }
+
+        void load(List<Event> loaded, boolean loadTruncated) {
+            Map<Long, long[]> entries = new HashMap<>();
+            loaded.forEach(event -> entries.put(event.getEventId(), new long[]{event.getTimestamp(), event.getEventId()}));
+            for (int i = 0; i < size; i++) {
+                entries.put(eventIds[i], new long[]{timestamps[i], eventIds[i]});
+            }
+            next = 0;
+            size = 0;
+            truncated = false;
+            entries.values().stream()
+                    .sorted(Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]))
+                    .forEach(entry -> push(entry[0], entry[1]));
+            truncated |= loadTruncated;
+            ready = true;
+        }
+
+        // id событий страницы от новых к старым; null, если буфер её не покрывает
+        List<Long> idsBefore(Event before, int limit) {
+            if (!ready) {
+                return null;
+            }
+            List<long[]> candidates = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (before == null || timestamps[i] < before.getTimestamp()
+                        || (timestamps[i] == before.getTimestamp() && eventIds[i] < before.getEventId())) {
+                    candidates.add(new long[]{timestamps[i], eventIds[i]});
+                }
+            }
+            if (candidates.size() < limit && truncated) {
+                return null;
+            }
+            return candidates.stream()
+                    .sorted(Comparator.<long[]>comparingLong(entry -> -entry[0]).thenComparingLong(entry -> -entry[1]))
+                    .limit(limit)
+                    .map(entry -> entry[1])
+                    .toList();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.dto.batch.BatchImportResult;
 import ru.yandex.practicum.filmorate.dao.dto.friend.FriendDto;
 import ru.yandex.practicum.filmorate.dao.dto.friend.FriendMapper;
+import ru.yandex.practicum.filmorate.dao.dto.friend.NewFriendRequest;
 import ru.yandex.practicum.filmorate.dao.dto.friend.UpdateFriendRequest;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.dao.repository.FriendRepository;
@@ -14,9 +17,7 @@ import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,6 +28,7 @@ public class FriendsService {
     private final UserRepository userDbStorage;
     private final Validation validation;
     private final EventService eventService;
+    private final FriendTimeline friendTimeline;
 
     public FriendDto addFriend(long userId, long friendId) {
         validation.validateUserExists(userId);
@@ -48,7 +50,46 @@ public class FriendsService {
                 friendId
         );
 
-        return FriendMapper.mapToFriendDto(friendRepository.save(friend));
+        Friend saved = friendRepository.save(friend);
+        friendTimeline.addFriend(userId, friendId);
+        return FriendMapper.mapToFriendDto(saved);
+    }
+
+    // Импорт дружб: существование пользователей проверяется одним запросом на весь пакет,
+    // вставка и события - пакетами. Статус как у addFriend, существующие связи не меняются
+    @Transactional
+    public BatchImportResult importFriends(List<NewFriendRequest> requests) {
+        Set<Long> userIds = new HashSet<>();
+        for (NewFriendRequest request : requests) {
+            if (request != null && request.getUserId() != null && request.getFriendId() != null) {
+                userIds.add(request.getUserId());
+                userIds.add(request.getFriendId());
+            }
+        }
+        Set<Long> existingUsers = userDbStorage.findExistingIds(userIds);
+
+        int rejected = 0;
+        Map<List<Long>, Friend> candidates = new LinkedHashMap<>();
+        for (NewFriendRequest request : requests) {
+            if (request == null || !existingUsers.contains(request.getUserId())
+                    || !existingUsers.contains(request.getFriendId())
+                    || request.getUserId().equals(request.getFriendId())) {
+                rejected++;
+                continue;
+            }
+            candidates.putIfAbsent(List.of(request.getUserId(), request.getFriendId()),
+                    new Friend(request.getUserId(), request.getFriendId(), "NOT_CONFIRMED"));
+        }
+
+        List<Friend> saved = friendRepository.saveAllIfAbsent(new ArrayList<>(candidates.values()));
+        saved.forEach(friend -> friendTimeline.addFriend(friend.getUserId(), friend.getFriendId()));
+        eventService.addEvents(EventType.FRIEND, EventOperation.ADD, saved.stream()
+                .map(friend -> Map.entry(friend.getUserId(), friend.getFriendId()))
+                .toList());
+
+        int duplicate = requests.size() - rejected - saved.size();
+        log.info("Импорт друзей: записано {}, повторов {}, отклонено {}", saved.size(), duplicate, rejected);
+        return new BatchImportResult(saved.size(), duplicate, rejected);
     }
 
     public void removeFriend(long userId, long friendId) {
@@ -67,6 +108,7 @@ public class FriendsService {
             log.error("Failed to delete existing friendship: {} -> {}", userId, friendId);
             throw new IllegalArgumentException("Не удалось удалить дружбу");
         }
+        friendTimeline.removeFriend(userId, friendId);
 
         eventService.addEvent(
                 userId,
@@ -3,7 +3,6 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.dto.genre.GenreDto;
-import ru.yandex.practicum.filmorate.dao.dto.genre.GenreMapper;
 import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -17,16 +16,14 @@ import java.util.Set;
 public class GenreService {
 
     private final GenreRepository genreRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public List<GenreDto> getGenres() {
-        return genreRepository.findAll().stream()
-                .map(GenreMapper::mapToGenreDto)
-                .toList();
+        return referenceDataCache.getAllGenres();
     }
 
     public GenreDto getGenreById(long genreId) {
-        return genreRepository.findById(genreId)
-                .map(GenreMapper::mapToGenreDto)
+        return referenceDataCache.findGenre(genreId)
                 .orElseThrow(() -> new NotFoundException("Жанр не найден с ID: " + genreId));
     }
 
@@ -1,20 +1,24 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import ru.yandex.practicum.filmorate.dao.dto.batch.BatchImportResult;
 import ru.yandex.practicum.filmorate.dao.dto.like.LikeDto;
 import ru.yandex.practicum.filmorate.dao.dto.like.LikeMapper;
+import ru.yandex.practicum.filmorate.dao.dto.like.NewLikeRequest;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.dao.repository.UserStorage;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,25 +28,25 @@ public class LikeService {
     private final LikeRepository likeRepository;
     private final Validation validation;
     private final EventService eventService;
+    private final PopularityIndex popularityIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final RecommendationCache recommendationCache;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
 
+    @Transactional
     public LikeDto addLike(long filmId, long userId) {
         validation.validateFilmExists(filmId);
         validation.validateUserExists(userId);
 
-        Set<Long> userLikes = likeRepository.findUserIdsByFilmId(filmId);
-        if (userLikes.contains(userId)) {
-            Like like = new Like(filmId, userId);
-            eventService.addEvent(
-                    userId,
-                    EventType.LIKE,
-                    EventOperation.ADD,
-                    filmId
-            );
-            return LikeMapper.mapToLikeDto(like);
-        }
-
+        // Повторный лайк не меняет счётчики и индексы, но событие в ленту пишется, как и для нового
         Like like = new Like(filmId, userId);
-        like = likeRepository.save(like);
+        if (likeRepository.saveIfAbsent(like)) {
+            popularityIndex.changeLikes(filmId, 1);
+            recommendationEngine.addLike(userId, filmId);
+            recommendationCache.onLikeChanged(userId, filmId);
+            log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        }
 
         eventService.addEvent(
                 userId,
@@ -50,11 +54,53 @@ public class LikeService {
                 EventOperation.ADD,
                 filmId
         );
-
-        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
         return LikeMapper.mapToLikeDto(like);
     }
 
+    // Импорт лайков: существование фильмов и пользователей проверяется двумя запросами на весь пакет,
+    // вставка и события - пакетами. Для уже существующих лайков событие не пишется
+    @Transactional
+    public BatchImportResult importLikes(List<NewLikeRequest> requests) {
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (NewLikeRequest request : requests) {
+            if (request != null && request.getFilmId() != null && request.getUserId() != null) {
+                filmIds.add(request.getFilmId());
+                userIds.add(request.getUserId());
+            }
+        }
+        Set<Long> existingFilms = filmStorage.findExistingIds(filmIds);
+        Set<Long> existingUsers = userStorage.findExistingIds(userIds);
+
+        int rejected = 0;
+        Set<Like> candidates = new LinkedHashSet<>();
+        for (NewLikeRequest request : requests) {
+            if (request == null || !existingFilms.contains(request.getFilmId())
+                    || !existingUsers.contains(request.getUserId())) {
+                rejected++;
+                continue;
+            }
+            candidates.add(new Like(request.getFilmId(), request.getUserId()));
+        }
+
+        List<Like> saved = likeRepository.saveAllIfAbsent(new ArrayList<>(candidates));
+        for (Like like : saved) {
+            popularityIndex.changeLikes(like.getFilmId(), 1);
+            recommendationEngine.addLike(like.getUserId(), like.getFilmId());
+        }
+        if (!saved.isEmpty()) {
+            recommendationCache.invalidateAll();
+        }
+        eventService.addEvents(EventType.LIKE, EventOperation.ADD, saved.stream()
+                .map(like -> Map.entry(like.getUserId(), like.getFilmId()))
+                .toList());
+
+        int duplicate = requests.size() - rejected - saved.size();
+        log.info("Импорт лайков: записано {}, повторов {}, отклонено {}", saved.size(), duplicate, rejected);
+        return new BatchImportResult(saved.size(), duplicate, rejected);
+    }
+
+    @Transactional
     public void removeLike(long filmId, long userId) {
         validation.validateFilmExists(filmId);
         validation.validateUserExists(userId);
@@ -64,6 +110,9 @@ public class LikeService {
         if (!deleted) {
             throw new NotFoundException("Лайк от пользователя " + userId + " фильму " + filmId + " не найден");
         }
+        popularityIndex.changeLikes(filmId, -1);
+        recommendationEngine.removeLike(userId, filmId);
+        recommendationCache.onLikeRemoved(userId, filmId);
 
         eventService.addEvent(
                 userId,
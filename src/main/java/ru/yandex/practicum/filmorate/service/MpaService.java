@@ -3,8 +3,6 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaDto;
-import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaMapper;
-import ru.yandex.practicum.filmorate.dao.repository.MpaRepository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
 import java.util.List;
@@ -12,17 +10,14 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class MpaService {
-    private final MpaRepository mpaRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public List<MpaDto> getMpa() {
-        return mpaRepository.findAll().stream()
-                .map(MpaMapper::mapToMpaDto)
-                .toList();
+        return referenceDataCache.getAllMpa();
     }
 
     public MpaDto getMpaById(long mpaId) {
-        return mpaRepository.findById(mpaId)
-                .map(MpaMapper::mapToMpaDto)
+        return referenceDataCache.findMpa(mpaId)
                 .orElseThrow(() -> new NotFoundException("Рейтинг не найден с ID: " + mpaId));
 
     }
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинг фильмов по числу лайков в памяти. Каждый фильм лежит в разделах
+// (все), (год), (жанр), (жанр, год), поэтому любой запрос /films/popular читает ровно count элементов.
+// Изменения из транзакции применяются после её фиксации, откаченные лайки и фильмы в рейтинг не попадают
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PopularityIndex {
+    private static final Comparator<Ranked> BY_POPULARITY = Comparator
+            .comparingLong(Ranked::likes).reversed()
+            .thenComparingLong(Ranked::filmId);
+
+    private final FilmStorage filmStorage;
+    private final GenreRepository genreRepository;
+    private final LikeRepository likeRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, FilmState> films = new HashMap<>();
+    private final Map<Partition, NavigableSet<Ranked>> partitions = new HashMap<>();
+
+    @PostConstruct
+    public void reload() {
+        Collection<Film> allFilms = filmStorage.getAll();
+        Map<Long, Set<Long>> genresByFilm = genreRepository.findAllGenreIdsByFilm();
+        Map<Long, Long> likesByFilm = likeRepository.countLikesByFilm();
+
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            partitions.clear();
+            for (Film film : allFilms) {
+                FilmState state = new FilmState(
+                        yearOf(film.getReleaseDate()),
+                        genresByFilm.getOrDefault(film.getId(), Set.of()),
+                        likesByFilm.getOrDefault(film.getId(), 0L)
+                );
+                films.put(film.getId(), state);
+                addToPartitions(film.getId(), state);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности загружен: {} фильмов", allFilms.size());
+    }
+
+    public void putFilm(long filmId, LocalDate releaseDate, Set<Long> genreIds) {
+        Set<Long> genres = genreIds != null ? Set.copyOf(genreIds) : Set.of();
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                FilmState previous = films.remove(filmId);
+                long likes = 0;
+                if (previous != null) {
+                    removeFromPartitions(filmId, previous);
+                    likes = previous.likes();
+                }
+                FilmState state = new FilmState(yearOf(releaseDate), genres, likes);
+                films.put(filmId, state);
+                addToPartitions(filmId, state);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeFilm(long filmId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                FilmState previous = films.remove(filmId);
+                if (previous != null) {
+                    removeFromPartitions(filmId, previous);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void changeLikes(long filmId, long delta) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                FilmState previous = films.get(filmId);
+                if (previous == null) {
+                    return;
+                }
+                FilmState state = new FilmState(previous.year(), previous.genreIds(),
+                        Math.max(0, previous.likes() + delta));
+                removeFromPartitions(filmId, previous);
+                films.put(filmId, state);
+                addToPartitions(filmId, state);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public List<Long> getTopFilmIds(Integer genreId, Integer year, int count) {
+        List<Long> result = new ArrayList<>();
+        if (count <= 0) {
+            return result;
+        }
+        Partition key = new Partition(genreId != null ? genreId.longValue() : null, year);
+        lock.readLock().lock();
+        try {
+            NavigableSet<Ranked> ranked = partitions.getOrDefault(key, Collections.emptyNavigableSet());
+            for (Ranked entry : ranked) {
+                if (result.size() == count) {
+                    break;
+                }
+                result.add(entry.filmId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Упорядочивает фильмы как в рейтинге (лайки по убыванию, затем id) и отдаёт не больше limit,
+    // идущих после позиции after - последнего фильма предыдущей страницы. Позиция передаётся целиком,
+    // поэтому изменение лайков у фильма-курсора между запросами не сдвигает следующую страницу
+    public List<FilmRank> rank(Collection<Long> filmIds, FilmRank after, int limit) {
+        lock.readLock().lock();
+        try {
+            Ranked cursor = after != null ? new Ranked(after.likes(), after.filmId()) : null;
+            return filmIds.stream()
+                    .map(filmId -> new Ranked(likesOf(filmId), filmId))
+                    .filter(ranked -> cursor == null || BY_POPULARITY.compare(ranked, cursor) > 0)
+                    .sorted(BY_POPULARITY)
+                    .limit(limit)
+                    .map(ranked -> new FilmRank(ranked.filmId(), ranked.likes()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long likesOf(long filmId) {
+        FilmState state = films.get(filmId);
+        return state != null ? state.likes() : 0;
+    }
+
+    public long getLikesCount(long filmId) {
+        lock.readLock().lock();
+        try {
+            FilmState state = films.get(filmId);
+            return state != null ? state.likes() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addToPartitions(long filmId, FilmState state) {
+        Ranked ranked = new Ranked(state.likes(), filmId);
+        for (Partition partition : partitionsOf(state)) {
+            partitions.computeIfAbsent(partition, p -> new TreeSet<>(BY_POPULARITY)).add(ranked);
+        }
+    }
+
+    private void removeFromPartitions(long filmId, FilmState state) {
+        Ranked ranked = new Ranked(state.likes(), filmId);
+        for (Partition partition : partitionsOf(state)) {
+            NavigableSet<Ranked> ranking = partitions.get(partition);
+            if (ranking != null) {
+                ranking.remove(ranked);
+                if (ranking.isEmpty()) {
+                    partitions.remove(partition);
+                }
+            }
+        }
+    }
+
+    private List<Partition> partitionsOf(FilmState state) {
+        List<Partition> result = new ArrayList<>(2 + state.genreIds().size() * 2);
+        result.add(new Partition(null, null));
+        if (state.year() != null) {
+            result.add(new Partition(null, state.year()));
+        }
+        for (Long genreId : state.genreIds()) {
+            result.add(new Partition(genreId, null));
+            if (state.year() != null) {
+                result.add(new Partition(genreId, state.year()));
+            }
+        }
+        return result;
+    }
+
+    private static Integer yearOf(LocalDate releaseDate) {
+        return releaseDate != null ? releaseDate.getYear() : null;
+    }
+
+    private record Partition(Long genreId, Integer year) {
+    }
+
+    private record FilmState(Integer year, Set<Long> genreIds, long likes) {
+    }
+
+    private record Ranked(long likes, long filmId) {
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.service.RecommendationEngine.Recommendation;
+
+import java.util.*;
+
+// LRU-кэш рекомендаций. Запись устаревает, когда меняются лайки самого пользователя, его соседей
+// или лайк ставят/снимают с фильма, который пользователь лайкнул (меняется пересечение с другими).
+// В kNN по Jaccard и cosine снятый лайк на любой фильм делает снявшего ближе ко всем, с кем у него остались
+// общие фильмы, поэтому onLikeRemoved помечает устаревшими и kNN-записи этих пользователей.
+// Устаревшая запись не удаляется сразу: самые запрашиваемые пересчитывает RecommendationCacheRefreshJob.
+// Инвалидация из транзакции выполняется после её фиксации, вслед за изменением RecommendationEngine
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationCache {
+    private final RecommendationEngine recommendationEngine;
+
+    @Value("${filmorate.recommendations.cache-size:10000}")
+    private int maxSize;
+
+    private final Map<RecommendationQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RecommendationQuery, Entry> eldest) {
+            if (size() > maxSize) {
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    // Пользователь -> запросы, результат которых зависит от его лайков
+    private final Map<Long, Set<RecommendationQuery>> dependentQueries = new HashMap<>();
+    // Те же записи без учёта порядка обращений: поиск в entries поднял бы устаревшую запись в начало LRU
+    private final Map<RecommendationQuery, Entry> entriesByQuery = new HashMap<>();
+    // Фильм -> запросы пользователей, лайкнувших его на момент расчёта
+    private final Map<Long, Set<RecommendationQuery>> queriesByLikedFilm = new HashMap<>();
+    // Растёт при каждой инвалидации: результат, посчитанный во время инвалидации, сразу помечается устаревшим
+    private long generation;
+
+    public List<Long> getFilmIds(RecommendationQuery query) {
+        long startedAt;
+        synchronized (this) {
+            Entry entry = entries.get(query);
+            if (entry != null) {
+                entry.hits++;
+                if (!entry.stale) {
+                    return entry.recommendation.filmIds();
+                }
+            }
+            startedAt = generation;
+        }
+        Recommendation recommendation = recommendationEngine.recommend(query);
+        store(query, recommendation, startedAt);
+        return recommendation.filmIds();
+    }
+
+    public void onLikeChanged(long userId, long filmId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                generation++;
+                markStale(dependentQueries.get(userId));
+                markStale(queriesByLikedFilm.get(filmId));
+            }
+        });
+    }
+
+    // Снявший лайк мог войти в top-k любого пользователя, с которым у него остались общие фильмы.
+    // Лайки берутся из RecommendationEngine: его изменение зарегистрировано раньше и уже применено
+    public void onLikeRemoved(long userId, long filmId) {
+        AfterCommit.run(() -> {
+            int[] remainingLikes = recommendationEngine.likesOf(userId);
+            synchronized (this) {
+                generation++;
+                markStale(dependentQueries.get(userId));
+                markStale(queriesByLikedFilm.get(filmId));
+                for (int likedFilmId : remainingLikes) {
+                    Set<RecommendationQuery> queries = queriesByLikedFilm.get((long) likedFilmId);
+                    if (queries != null) {
+                        queries.stream().filter(RecommendationQuery::isKnn).forEach(this::markStale);
+                    }
+                }
+            }
+        });
+    }
+
+    public void onUserRemoved(long userId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                generation++;
+                markStale(dependentQueries.get(userId));
+                entries.entrySet().removeIf(entry -> {
+                    if (entry.getKey().userId() == userId) {
+                        unindex(entry.getKey(), entry.getValue());
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                generation++;
+                entries.values().forEach(entry -> entry.stale = true);
+            }
+        });
+    }
+
+    // Пересчитывает не больше limit устаревших записей с наибольшим числом обращений,
+    // счётчики обращений делятся пополам, чтобы "горячими" считались недавние запросы
+    public int refreshHottest(int limit) {
+        List<RecommendationQuery> hottest;
+        long startedAt;
+        synchronized (this) {
+            hottest = entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().stale)
+                    .sorted(Comparator.comparingLong((Map.Entry<RecommendationQuery, Entry> entry) -> entry.getValue().hits)
+                            .reversed())
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            entries.values().forEach(entry -> entry.hits /= 2);
+            startedAt = generation;
+        }
+        for (RecommendationQuery query : hottest) {
+            store(query, recommendationEngine.recommend(query), startedAt);
+        }
+        return hottest.size();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void store(RecommendationQuery query, Recommendation recommendation, long startedAt) {
+        Entry previous = entries.remove(query);
+        if (previous != null) {
+            unindex(query, previous);
+        }
+        Entry entry = new Entry(recommendation);
+        entry.hits = previous != null ? previous.hits : 1;
+        entry.stale = startedAt != generation;
+        entries.put(query, entry);
+        entriesByQuery.put(query, entry);
+        dependentQueries.computeIfAbsent(query.userId(), id -> new HashSet<>()).add(query);
+        for (Long neighbourId : recommendation.neighbourIds()) {
+            dependentQueries.computeIfAbsent(neighbourId, id -> new HashSet<>()).add(query);
+        }
+        for (int filmId : recommendation.ownLikes()) {
+            queriesByLikedFilm.computeIfAbsent((long) filmId, id -> new HashSet<>()).add(query);
+        }
+    }
+
+    private void markStale(Set<RecommendationQuery> queries) {
+        if (queries != null) {
+            queries.forEach(this::markStale);
+        }
+    }
+
+    private void markStale(RecommendationQuery query) {
+        Entry entry = entriesByQuery.get(query);
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    private void unindex(RecommendationQuery query, Entry entry) {
+        entriesByQuery.remove(query);
+        removeDependency(dependentQueries, query.userId(), query);
+        for (Long neighbourId : entry.recommendation.neighbourIds()) {
+            removeDependency(dependentQueries, neighbourId, query);
+        }
+        for (int filmId : entry.recommendation.ownLikes()) {
+            removeDependency(queriesByLikedFilm, filmId, query);
+        }
+    }
+
+    private static void removeDependency(Map<Long, Set<RecommendationQuery>> index, long key, RecommendationQuery query) {
+        Set<RecommendationQuery> queries = index.get(key);
+        if (queries != null) {
+            queries.remove(query);
+            if (queries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Recommendation recommendation;
+        private long hits;
+        private boolean stale;
+
+        private Entry(Recommendation recommendation) {
+            this.recommendation = recommendation;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.dao.repository.UserRepository;
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Матрица пользователь x фильм в памяти: у каждого пользователя отсортированный массив id лайкнутых фильмов.
+// Массивы не меняются на месте, при записи подменяются копией. Изменения из транзакции применяются после её фиксации
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationEngine {
+    private static final int[] NO_LIKES = new int[0];
+    // Более похожие раньше, при равенстве - меньший id пользователя
+    private static final Comparator<Neighbour> BY_SIMILARITY = Comparator
+            .comparingDouble(Neighbour::similarity).reversed()
+            .thenComparingLong(Neighbour::userId);
+
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // TreeMap: при равном пересечении выигрывает пользователь с меньшим id
+    private final NavigableMap<Long, int[]> likesByUser = new TreeMap<>();
+
+    @PostConstruct
+    public void reload() {
+        List<Long> userIds = userRepository.getAllIds();
+        Map<Long, List<Long>> filmIdsByUser = likeRepository.findAllFilmIdsByUser();
+
+        lock.writeLock().lock();
+        try {
+            likesByUser.clear();
+            for (Long userId : userIds) {
+                likesByUser.put(userId, toSortedArray(filmIdsByUser.getOrDefault(userId, List.of())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Матрица лайков для рекомендаций загружена: {} пользователей", userIds.size());
+    }
+
+    public void addUser(long userId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                likesByUser.putIfAbsent(userId, NO_LIKES);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeUser(long userId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                likesByUser.remove(userId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void addLike(long userId, long filmId) {
+        int film = Math.toIntExact(filmId);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                int[] likes = likesByUser.getOrDefault(userId, NO_LIKES);
+                int position = Arrays.binarySearch(likes, film);
+                if (position >= 0) {
+                    return;
+                }
+                int insertAt = -position - 1;
+                int[] updated = new int[likes.length + 1];
+                System.arraycopy(likes, 0, updated, 0, insertAt);
+                updated[insertAt] = film;
+                System.arraycopy(likes, insertAt, updated, insertAt + 1, likes.length - insertAt);
+                likesByUser.put(userId, updated);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeLike(long userId, long filmId) {
+        int film = Math.toIntExact(filmId);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                int[] likes = likesByUser.get(userId);
+                if (likes != null) {
+                    likesByUser.put(userId, without(likes, film));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeFilm(long filmId) {
+        int film = Math.toIntExact(filmId);
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                likesByUser.replaceAll((userId, likes) -> without(likes, film));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Лайки пользователя по возрастанию id; массив не изменяется
+    public int[] likesOf(long userId) {
+        lock.readLock().lock();
+        try {
+            return likesByUser.getOrDefault(userId, NO_LIKES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ближайший сосед - пользователь с наибольшим числом общих лайков; рекомендуем его фильмы,
+    // которых нет у пользователя. Id фильмов возвращаются по возрастанию
+    public Recommendation recommend(RecommendationQuery query) {
+        return query.isKnn()
+                ? recommend(query.userId(), query.k(), query.limit(), query.metric())
+                : recommend(query.userId());
+    }
+
+    private Recommendation recommend(long userId) {
+        lock.readLock().lock();
+        try {
+            int[] own = likesByUser.get(userId);
+            if (own == null || own.length == 0) {
+                return Recommendation.empty(own);
+            }
+
+            long neighbourId = 0;
+            int[] neighbour = null;
+            int bestOverlap = -1;
+            for (Map.Entry<Long, int[]> entry : likesByUser.entrySet()) {
+                if (entry.getKey() == userId) {
+                    continue;
+                }
+                int overlap = intersectionSize(own, entry.getValue());
+                if (overlap > bestOverlap) {
+                    bestOverlap = overlap;
+                    neighbourId = entry.getKey();
+                    neighbour = entry.getValue();
+                }
+            }
+            if (neighbour == null) {
+                return Recommendation.empty(own);
+            }
+            return new Recommendation(difference(neighbour, own), Set.of(neighbourId), own);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Взвешенный режим: берём k самых похожих пользователей (хотя бы один общий лайк),
+    // каждый их фильм, которого нет у пользователя, получает сумму сходств соседей, лайкнувших его.
+    // Память ограничена k соседями и их лайками, от числа пользователей не зависит
+    private Recommendation recommend(long userId, int k, int limit, SimilarityMetric metric) {
+        lock.readLock().lock();
+        try {
+            int[] own = likesByUser.get(userId);
+            if (own == null || own.length == 0) {
+                return Recommendation.empty(own);
+            }
+
+            PriorityQueue<Neighbour> neighbours = new PriorityQueue<>(k + 1, BY_SIMILARITY.reversed());
+            for (Map.Entry<Long, int[]> entry : likesByUser.entrySet()) {
+                int[] other = entry.getValue();
+                if (entry.getKey() == userId || other.length == 0) {
+                    continue;
+                }
+                int overlap = intersectionSize(own, other);
+                if (overlap == 0) {
+                    continue;
+                }
+                neighbours.add(new Neighbour(entry.getKey(), similarity(metric, overlap, own.length, other.length), other));
+                if (neighbours.size() > k) {
+                    neighbours.poll();
+                }
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            Set<Long> neighbourIds = new HashSet<>();
+            for (Neighbour neighbour : neighbours) {
+                neighbourIds.add(neighbour.userId());
+                for (Long filmId : difference(neighbour.likes(), own)) {
+                    scores.merge(filmId, neighbour.similarity(), Double::sum);
+                }
+            }
+            return new Recommendation(topByScore(scores, limit), neighbourIds, own);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> topByScore(Map<Long, Double> scores, int limit) {
+        Comparator<Map.Entry<Long, Double>> byScore = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(limit + 1, byScore.reversed());
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            top.add(score);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(byScore);
+        return ranked.stream().map(Map.Entry::getKey).toList();
+    }
+
+    private static double similarity(SimilarityMetric metric, int overlap, int ownSize, int otherSize) {
+        return switch (metric) {
+            case JACCARD -> (double) overlap / (ownSize + otherSize - overlap);
+            case COSINE -> overlap / Math.sqrt((double) ownSize * otherSize);
+        };
+    }
+
+    private static int intersectionSize(int[] left, int[] right) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Элементы from, которых нет в exclude
+    private static List<Long> difference(int[] from, int[] exclude) {
+        List<Long> result = new ArrayList<>();
+        int j = 0;
+        for (int value : from) {
+            while (j < exclude.length && exclude[j] < value) {
+                j++;
+            }
+            if (j == exclude.length || exclude[j] != value) {
+                result.add((long) value);
+            }
+        }
+        return result;
+    }
+
+    private static int[] without(int[] likes, int film) {
+        int position = Arrays.binarySearch(likes, film);
+        if (position < 0) {
+            return likes;
+        }
+        int[] updated = new int[likes.length - 1];
+        System.arraycopy(likes, 0, updated, 0, position);
+        System.arraycopy(likes, position + 1, updated, position, likes.length - position - 1);
+        return updated;
+    }
+
+    private static int[] toSortedArray(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return NO_LIKES;
+        }
+        int[] result = new int[filmIds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.toIntExact(filmIds.get(i));
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    // filmIds - рекомендованные фильмы, neighbourIds - соседи, по которым они посчитаны,
+    // ownLikes - лайки самого пользователя на момент расчёта (массив не изменяется)
+    public record Recommendation(List<Long> filmIds, Set<Long> neighbourIds, int[] ownLikes) {
+
+        private static Recommendation empty(int[] ownLikes) {
+            return new Recommendation(List.of(), Set.of(), ownLikes != null ? ownLikes : NO_LIKES);
+        }
+
+        public boolean likedByUser(long filmId) {
+            return filmId <= Integer.MAX_VALUE && Arrays.binarySearch(ownLikes, (int) filmId) >= 0;
+        }
+    }
+
+    private record Neighbour(long userId, double similarity, int[] likes) {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
+
+// Параметры запроса рекомендаций; metric == null - режим одного ближайшего соседа
+public record RecommendationQuery(long userId, SimilarityMetric metric, int k, int limit) {
+
+    public static RecommendationQuery nearest(long userId) {
+        return new RecommendationQuery(userId, null, 0, 0);
+    }
+
+    public static RecommendationQuery knn(long userId, SimilarityMetric metric, int k, int limit) {
+        return new RecommendationQuery(userId, metric, k, limit);
+    }
+
+    public boolean isKnn() {
+        return metric != null;
+    }
+}
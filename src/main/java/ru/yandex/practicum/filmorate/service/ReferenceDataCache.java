@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.dto.genre.GenreDto;
+import ru.yandex.practicum.filmorate.dao.dto.genre.GenreMapper;
+import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaDto;
+import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaMapper;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.dao.repository.MpaRepository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.util.List;
+import java.util.Optional;
+
+// Справочники MPA и жанров из schema.sql: массивы, где индекс - id записи.
+// Снимок заменяется целиком, наружу отдаются копии, поэтому общие объекты никто не изменит
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final MpaRepository mpaRepository;
+    private final GenreRepository genreRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(new MpaRating[0], List.of(), new Genre[0], List.of());
+
+    @PostConstruct
+    public void reload() {
+        List<MpaRating> ratings = mpaRepository.findAll();
+        List<Genre> genres = genreRepository.findAll();
+
+        MpaRating[] ratingsById = new MpaRating[ratings.stream().mapToInt(r -> Math.toIntExact(r.getId())).max().orElse(0) + 1];
+        ratings.forEach(rating -> ratingsById[Math.toIntExact(rating.getId())] = rating);
+        Genre[] genresById = new Genre[genres.stream().mapToInt(g -> Math.toIntExact(g.getId())).max().orElse(0) + 1];
+        genres.forEach(genre -> genresById[Math.toIntExact(genre.getId())] = genre);
+
+        snapshot = new Snapshot(ratingsById, List.copyOf(ratings), genresById, List.copyOf(genres));
+        log.info("Справочники загружены: {} рейтингов MPA, {} жанров", ratings.size(), genres.size());
+    }
+
+    public List<MpaDto> getAllMpa() {
+        return snapshot.ratings().stream()
+                .map(MpaMapper::mapToMpaDto)
+                .toList();
+    }
+
+    public Optional<MpaDto> findMpa(long mpaId) {
+        return Optional.ofNullable(lookup(snapshot.ratingsById(), mpaId))
+                .map(MpaMapper::mapToMpaDto);
+    }
+
+    public boolean mpaExists(long mpaId) {
+        return lookup(snapshot.ratingsById(), mpaId) != null;
+    }
+
+    public List<GenreDto> getAllGenres() {
+        return snapshot.genres().stream()
+                .map(GenreMapper::mapToGenreDto)
+                .toList();
+    }
+
+    public Optional<GenreDto> findGenre(long genreId) {
+        return Optional.ofNullable(lookup(snapshot.genresById(), genreId))
+                .map(GenreMapper::mapToGenreDto);
+    }
+
+    public boolean genreExists(long genreId) {
+        return lookup(snapshot.genresById(), genreId) != null;
+    }
+
+    private static <T> T lookup(T[] byId, long id) {
+        return id >= 0 && id < byId.length ? byId[(int) id] : null;
+    }
+
+    private record Snapshot(MpaRating[] ratingsById, List<MpaRating> ratings, Genre[] genresById, List<Genre> genres) {
+    }
+}
@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.repository.ReviewLikeRepository;
 import ru.yandex.practicum.filmorate.dao.repository.ReviewRepository;
@@ -10,6 +12,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.ReviewLike;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
+import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.util.Optional;
 
@@ -19,13 +22,18 @@ import java.util.Optional;
 public class ReviewLikeService {
     private final ReviewLikeRepository reviewLikeRepository;
     private final ReviewRepository reviewRepository;
-    private final UserService userService;
+    private final Validation validation;
     private final EventService eventService;
+    private final ReviewUsefulCounter reviewUsefulCounter;
 
+    // useful меняется на разницу в той же транзакции, что и review_likes: +-1 за новую или удалённую
+    // реакцию, +-2 за смену лайка на дизлайк и обратно. Полный пересчёт - в ReviewUsefulReconciliationJob
+    @Transactional
     public void addReaction(Long reviewId, Long userId, boolean isLike) {
-        reviewRepository.findById(reviewId)
-                .orElseThrow(() -> new NotFoundException("Отзыв с ID=" + reviewId + " не найден"));
-        userService.getById(userId);
+        if (!reviewRepository.existsById(reviewId)) {
+            throw new NotFoundException("Отзыв с ID=" + reviewId + " не найден");
+        }
+        validation.validateReviewUserExists(userId);
 
         Optional<ReviewLike> existingReactionOpt = reviewLikeRepository.findByReviewIdAndUserId(reviewId, userId);
 
@@ -46,22 +54,29 @@ public class ReviewLikeService {
             }
         }
 
-        ReviewLike reviewLike = new ReviewLike(reviewId, userId, isLike);
-        reviewLikeRepository.save(reviewLike);
-        updateReviewUseful(reviewId);
-
         String reactionType = isLike ? "лайк" : "дизлайк";
+        try {
+            reviewLikeRepository.create(new ReviewLike(reviewId, userId, isLike));
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос того же пользователя успел поставить реакцию раньше
+            throw new DuplicatedDataException("Пользователь " + userId + " уже оценил отзыв " + reviewId);
+        }
+        reviewUsefulCounter.add(reviewId, isLike ? 1 : -1);
+
         log.info("Пользователь {} поставил {} отзыву {}", userId, reactionType, reviewId);
     }
 
+    @Transactional
     public void addLike(Long reviewId, Long userId) {
         addReaction(reviewId, userId, true);
     }
 
+    @Transactional
     public void addDislike(Long reviewId, Long userId) {
         addReaction(reviewId, userId, false);
     }
 
+    @Transactional
     public void removeLike(Long reviewId, Long userId) {
         removeReaction(reviewId, userId, true);
 
@@ -75,6 +90,7 @@ public class ReviewLikeService {
         log.info("Пользователь {} удалил лайк с отзыва {}", userId, reviewId);
     }
 
+    @Transactional
     public void removeDislike(Long reviewId, Long userId) {
         removeReaction(reviewId, userId, false);
         log.info("Пользователь {} удалил дизлайк с отзыва {}", userId, reviewId);
@@ -91,27 +107,18 @@ public class ReviewLikeService {
                             ", но найдена другая реакция");
         }
 
-        reviewLikeRepository.delete(reviewId, userId);
-
-        updateReviewUseful(reviewId);
+        if (!reviewLikeRepository.deleteReaction(reviewId, userId, expectedType)) {
+            throw new NotFoundException("Реакция пользователя " + userId + " на отзыв " + reviewId + " не найдена");
+        }
+        reviewUsefulCounter.add(reviewId, expectedType ? -1 : 1);
     }
 
     private void updateReaction(Long reviewId, Long userId, Boolean newIsLike) {
-        ReviewLike reviewLike = new ReviewLike(reviewId, userId, newIsLike);
-        reviewLikeRepository.update(reviewLike);
-
-        updateReviewUseful(reviewId);
-    }
-
-    public Long getUseful(Long reviewId) {
-        long likesCount = reviewLikeRepository.countLikes(reviewId);
-        long dislikesCount = reviewLikeRepository.countDislikes(reviewId);
-        return likesCount - dislikesCount;
-    }
-
-    private void updateReviewUseful(Long reviewId) {
-        Long useful = getUseful(reviewId);
-        reviewLikeRepository.updateReviewUseful(reviewId, useful);
+        if (!reviewLikeRepository.updateIfChanged(new ReviewLike(reviewId, userId, newIsLike))) {
+            // Реакцию успел сменить или удалить параллельный запрос
+            throw new DuplicatedDataException("Реакция пользователя " + userId + " на отзыв " + reviewId + " уже изменена");
+        }
+        reviewUsefulCounter.add(reviewId, newIsLike ? 2 : -2);
     }
 
     public Optional<Boolean> getUserReaction(Long reviewId, Long userId) {
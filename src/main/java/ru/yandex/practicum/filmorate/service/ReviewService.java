@@ -12,24 +12,29 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
+import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+// Рейтинг отзыва читается из колонки reviews.useful: её обновляет ReviewLikeService при каждой реакции,
+// а ReviewUsefulReconciliationJob сверяет с review_likes
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReviewService {
     private final ReviewRepository reviewRepository;
     private final ReviewMapper reviewMapper;
-    private final UserService userService;
-    private final FilmService filmService;
-    private final ReviewLikeService reviewLikeService;
+    private final Validation validation;
     private final EventService eventService;
+    private final ReviewUsefulCounter reviewUsefulCounter;
 
+    // Для проверок существования пользователя и фильма хватает EXISTS: getById подгрузил бы друзей,
+    // а фильм - вместе со всеми лайками, жанрами и режиссёрами
     public ReviewDto createReview(NewReviewRequest request) {
-        userService.getById(request.getUserId());
-        filmService.getById(request.getFilmId());
+        validation.validateReviewUserExists(request.getUserId());
+        validation.validateFilmExists(request.getFilmId());
 
         Review review = reviewMapper.mapToReview(request);
         Review savedReview = reviewRepository.save(review);
@@ -52,7 +57,7 @@ public class ReviewService {
                 .orElseThrow(() -> new NotFoundException("Отзыв с ID=" + request.getReviewId() + " не найден"));
 
         Review updatedReview = reviewMapper.updateReviewFields(existingReview, request);
-        Review savedReview = reviewRepository.update(updatedReview);
+        Review savedReview = reviewRepository.updateContent(updatedReview);
 
         eventService.addEvent(
                 savedReview.getUserId(),
@@ -72,6 +77,7 @@ public class ReviewService {
                 .orElseThrow(() -> new NotFoundException("Отзыв с ID=" + reviewId + " не найден"));
 
         reviewRepository.delete(reviewId);
+        reviewUsefulCounter.remove(reviewId);
 
         eventService.addEvent(
                 deletedReview.getUserId(),
@@ -86,33 +92,29 @@ public class ReviewService {
     public ReviewDto getReviewById(Long reviewId) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new NotFoundException("Отзыв с ID=" + reviewId + " не найден"));
-
-        review.setUseful(reviewLikeService.getUseful(reviewId));
+        review.setUseful(review.getUseful() + reviewUsefulCounter.pendingDelta(reviewId));
 
         return reviewMapper.mapToReviewDto(review);
     }
 
     public List<ReviewDto> getReviewsByFilmId(Long filmId, Integer count) {
-        filmService.getById(filmId);
-
-        List<Review> reviews = reviewRepository.findByFilmId(filmId, count);
-
-        reviews.forEach(review ->
-                review.setUseful(reviewLikeService.getUseful(review.getReviewId())));
+        validation.validateFilmExists(filmId);
 
-        return reviews.stream()
-                .map(reviewMapper::mapToReviewDto)
-                .collect(Collectors.toList());
+        return withPendingUseful(reviewRepository.findByFilmId(filmId, count));
     }
 
     public List<ReviewDto> getAllReviews(Integer count) {
-        List<Review> reviews = reviewRepository.findAll(count);
+        return withPendingUseful(reviewRepository.findAll(count));
+    }
 
+    // Прибавляет ещё не записанную разницу рейтинга и восстанавливает порядок страницы, как в ReviewRepository
+    private List<ReviewDto> withPendingUseful(List<Review> reviews) {
         reviews.forEach(review ->
-                review.setUseful(reviewLikeService.getUseful(review.getReviewId())));
+                review.setUseful(review.getUseful() + reviewUsefulCounter.pendingDelta(review.getReviewId())));
 
         return reviews.stream()
+                .sorted(Comparator.comparingLong(Review::getUseful).reversed().thenComparingLong(Review::getReviewId))
                 .map(reviewMapper::mapToReviewDto)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
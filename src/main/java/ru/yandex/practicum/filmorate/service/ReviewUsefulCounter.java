@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.ReviewLikeRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+
+// Изменения reviews.useful. По умолчанию пишутся сразу, в транзакции реакции. При write-behind=true
+// разница копится в LongAdder отзыва (популярный отзыв не упирается в одну строку БД) и раз в
+// flush-interval-ms пишется пачкой через ReviewUsefulFlushJob; review_likes при этом меняется
+// синхронно, а чтения отзывов прибавляют ещё не записанную разницу
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReviewUsefulCounter {
+    // Счётчик, не менявшийся столько сбросов подряд, удаляется из памяти
+    private static final int IDLE_FLUSHES_BEFORE_REMOVAL = 2;
+
+    private final ReviewLikeRepository reviewLikeRepository;
+
+    @Value("${filmorate.reviews.useful-write-behind:false}")
+    private boolean writeBehind;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock reconciliation = new ReentrantReadWriteLock();
+
+    public void add(long reviewId, long delta) {
+        if (!writeBehind) {
+            reviewLikeRepository.incrementReviewUseful(reviewId, delta);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reconciliation.readLock().lock();
+            try {
+                addPending(reviewId, delta);
+            } finally {
+                reconciliation.readLock().unlock();
+            }
+            return;
+        }
+        // Разница учитывается только после фиксации review_likes, откат реакции её не оставит.
+        // От фиксации до учёта разницы держим блокировку чтения, чтобы сверка не попала между ними
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                reconciliation.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                addPending(reviewId, delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    reconciliation.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    // Сброс и пересчёт по review_likes под блокировкой записи: реакция фиксируется и попадает в счётчик
+    // либо целиком до сброса, либо целиком после пересчёта, поэтому её разница не учитывается дважды
+    public int reconcile(IntSupplier recalculation) {
+        reconciliation.writeLock().lock();
+        try {
+            flush();
+            return recalculation.getAsInt();
+        } finally {
+            reconciliation.writeLock().unlock();
+        }
+    }
+
+    // Ещё не записанная в reviews.useful разница
+    public long pendingDelta(long reviewId) {
+        Pending entry = pending.get(reviewId);
+        return entry != null ? entry.delta.sum() : 0;
+    }
+
+    public void remove(long reviewId) {
+        pending.remove(reviewId);
+    }
+
+    // Счётчики не обнуляются, а уменьшаются на записанное: реакции, пришедшие во время записи, остаются
+    // в счётчике до следующего сброса
+    @PreDestroy
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, Pending> flushed = new HashMap<>();
+        pending.forEach((reviewId, entry) -> {
+            long delta = entry.delta.sum();
+            if (delta != 0) {
+                deltas.put(reviewId, delta);
+                flushed.put(reviewId, entry);
+            }
+        });
+        try {
+            reviewLikeRepository.incrementReviewUsefulAll(deltas);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать рейтинг {} отзывов, повторим при следующем сбросе: {}",
+                    deltas.size(), e.getMessage());
+            return;
+        }
+        deltas.forEach((reviewId, delta) -> flushed.get(reviewId).delta.add(-delta));
+        removeIdle(flushed);
+        if (!deltas.isEmpty()) {
+            log.debug("Записан рейтинг {} отзывов", deltas.size());
+        }
+    }
+
+    // Без блокировки ключа: популярный отзыв меняют параллельно, и LongAdder не должен ждать compute.
+    // Если счётчик в этот момент удаляется, под блокировкой ключа переносим то, что в него попало после проверки
+    private void addPending(long reviewId, long delta) {
+        Pending entry = pending.get(reviewId);
+        if (entry == null) {
+            pending.compute(reviewId, (id, current) -> {
+                Pending result = current != null ? current : new Pending();
+                result.delta.add(delta);
+                return result;
+            });
+            return;
+        }
+        entry.delta.add(delta);
+        if (entry.retired) {
+            pending.compute(reviewId, (id, current) -> current == entry ? current : entry.moveTo(current));
+        }
+    }
+
+    // Счётчик помечается удаляемым до проверки разницы: addPending, чьё добавление проверка не увидела,
+    // увидит пометку и перенесёт его. Пометка меняется только под блокировкой ключа
+    private void removeIdle(Map<Long, Pending> flushed) {
+        pending.forEach((reviewId, entry) -> {
+            if (flushed.containsKey(reviewId)) {
+                entry.idleFlushes = 0;
+                return;
+            }
+            if (++entry.idleFlushes >= IDLE_FLUSHES_BEFORE_REMOVAL) {
+                pending.computeIfPresent(reviewId, (id, current) -> {
+                    current.retired = true;
+                    if (current.delta.sum() == 0) {
+                        return null;
+                    }
+                    current.retired = false;
+                    return current;
+                });
+            }
+        });
+    }
+
+    private static class Pending {
+        private final LongAdder delta = new LongAdder();
+        private volatile boolean retired;
+        // Сколько из разницы удалённого счётчика уже перенесено; меняется под блокировкой ключа
+        private long moved;
+        // Меняется только под монитором flush
+        private int idleFlushes;
+
+        // При удалении разница была нулевой, поэтому переносится всё, что прибавлено после этого
+        private Pending moveTo(Pending current) {
+            long total = delta.sum();
+            long change = total - moved;
+            moved = total;
+            if (current == null && change == 0) {
+                return null;
+            }
+            Pending result = current != null ? current : new Pending();
+            result.delta.add(change);
+            return result;
+        }
+    }
+}
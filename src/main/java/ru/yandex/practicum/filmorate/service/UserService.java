@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.dto.user.NewUserRequest;
@@ -7,10 +8,12 @@ import ru.yandex.practicum.filmorate.dao.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.dao.dto.user.UserMapper;
 import ru.yandex.practicum.filmorate.dao.repository.FriendRepository;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
 import ru.yandex.practicum.filmorate.dao.repository.UserRepository;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
@@ -21,6 +24,11 @@ import java.util.*;
 public class UserService {
     private final UserRepository userStorage;
     private final FriendRepository friendRepository;
+    private final LikeRepository likeRepository;
+    private final PopularityIndex popularityIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final RecommendationCache recommendationCache;
+    private final FriendTimeline friendTimeline;
 
     public UserDto create(NewUserRequest request) {
         Optional<User> alreadyExistUser = userStorage.findByEmail(request.getEmail());
@@ -30,6 +38,7 @@ public class UserService {
 
         User user = UserMapper.mapToUser(request);
         user = userStorage.create(user);
+        recommendationEngine.addUser(user.getId());
         return UserMapper.mapToUserDto(user);
     }
 
@@ -42,8 +51,8 @@ public class UserService {
         return UserMapper.mapToUserDto(updateCollections(updatedUser, updatedUser.getId()));
     }
 
-    public Collection<UserDto> getAll() {
-        return userStorage.getAll().stream()
+    public List<UserDto> getAll(Long afterId, int limit) {
+        return userStorage.getAll(afterId, limit).stream()
                 .map(user -> updateCollections(user, user.getId()))
                 .map(UserMapper::mapToUserDto)
                 .toList();
@@ -61,11 +70,17 @@ public class UserService {
         return user;
     }
 
+    @Transactional
     public void deleteUser(long id) {  // ← пробел перед {
         getById(id);
+        List<Like> likes = likeRepository.findByUserId(id);
         boolean deleted = userStorage.deleteUser(id);
         if (!deleted) {  // ← пробел после if и перед {
             throw new InternalServerException("Не удалось удалить пользователя с id=" + id);
         }
+        likes.forEach(like -> popularityIndex.changeLikes(like.getFilmId(), -1));
+        recommendationEngine.removeUser(id);
+        recommendationCache.onUserRemoved(id);
+        friendTimeline.removeUser(id);
     }
 }
\ No newline at end of file
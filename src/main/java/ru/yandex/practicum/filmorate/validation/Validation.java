@@ -1,42 +1,93 @@
 package ru.yandex.practicum.filmorate.validation;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.dao.dto.film.NewFilmRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.dao.repository.UserStorage;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
+import ru.yandex.practicum.filmorate.service.DirectorCache;
+import ru.yandex.practicum.filmorate.service.ReferenceDataCache;
 
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class Validation {
+    private static final int MAX_RECOMMENDATION_NEIGHBOURS = 100;
+    private static final int MAX_RECOMMENDATION_LIMIT = 100;
+
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
-    private final DirectorRepository directorRepository;
+    private final DirectorCache directorCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final Validator validator;
+
+    @Value("${filmorate.pagination.max-limit:1000}")
+    private int maxPageLimit;
+    // Запрос без limit по-прежнему отдаёт список целиком, но не больше этого числа записей
+    @Value("${filmorate.pagination.unpaged-cap:10000}")
+    private int unpagedCap;
+    // Общий лимит для всех пакетных эндпоинтов: фильмы, лайки и дружбы
+    @Value("${filmorate.batch.max-size:10000}")
+    private int maxBatchSize;
 
     public void validationMpa(long mpaId) {
-        if (mpaId > 5 || mpaId < 1) {
+        if (!referenceDataCache.mpaExists(mpaId)) {
             throw new NotFoundException("Выход за пределы рейтинга");
         }
     }
 
     public void validationGenre(Set<Long> genres) {
         for (Long g : genres) {
-            if (g < 1 || g > 6) {
+            if (!referenceDataCache.genreExists(g)) {
                 throw new NotFoundException("Выход за пределы жанра");
             }
         }
     }
 
+    // Те же проверки, что для POST /films: аннотации NewFilmRequest, рейтинг, жанры и режиссёры
+    public void validateNewFilm(NewFilmRequest request) {
+        if (request == null) {
+            throw new ValidationException("Описание фильма не может быть пустым");
+        }
+        Set<ConstraintViolation<NewFilmRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        validationMpa(request.getMpa());
+        validationGenre(request.getGenres());
+        validateDirectorsSetExists(request.getDirectors());
+    }
+
+    public void validateBatchSize(int size) {
+        if (size < 1 || size > maxBatchSize) {
+            throw new ValidationException("Пакет должен содержать от 1 до " + maxBatchSize + " записей");
+        }
+    }
+
     public void validateUserExists(long userId) {
         if (!userStorage.validateId(userId)) {
             throw new NotFoundException("Пользователь с id=" + userId + " не найден");
         }
     }
 
+    // Эндпоинты отзывов раньше проверяли пользователя через UserService.getById - сохраняем его сообщение
+    public void validateReviewUserExists(long userId) {
+        if (!userStorage.validateId(userId)) {
+            throw new NotFoundException("Пользователь не найден с ID: " + userId);
+        }
+    }
+
     public void validateFilmExists(long filmId) {
         if (!filmStorage.validateId(filmId)) {
             throw new NotFoundException("Фильм с id=" + filmId + " не найден");
@@ -44,20 +95,24 @@ public class Validation {
     }
 
     public void validateDirectorsSetExists(Set<Long> directors) {
-        for (Long d : directors) {
-            if (directorRepository.findById(d).isEmpty()) {
-                throw new NotFoundException("Режиссер с id=" + d + " не найден");
-            }
-        }
+        directorCache.findMissing(directors).ifPresent(d -> {
+            throw new NotFoundException("Режиссер с id=" + d + " не найден");
+        });
     }
 
 
     public void validateDirectorExists(long directorId) {
-        if (directorRepository.findById(directorId).isEmpty()) {
+        if (!directorCache.exists(directorId)) {
             throw new NotFoundException("Режиссер с id=" + directorId + " не найден");
         }
     }
 
+    public void validateSearchCursor(Long afterLikes, Long afterId) {
+        if (afterLikes != null && afterId == null) {
+            throw new ValidationException("Параметр 'afterLikes' передаётся только вместе с 'afterId'");
+        }
+    }
+
     public void validateSearchParameters(Set<String> searchBy) {
         if (searchBy == null || searchBy.isEmpty()) {
             throw new ValidationException("Параметр 'by' должен содержать значение: title, director или description");
@@ -71,4 +126,41 @@ public class Validation {
             }
         }
     }
+
+    // true - NDJSON, false - JSON-массив
+    public boolean validateExportFormat(String format) {
+        return switch (format) {
+            case "ndjson" -> true;
+            case "json" -> false;
+            default -> throw new ValidationException(
+                    "Недопустимое значение в параметре 'format': " + format + ". Допустимые значения: ndjson, json"
+            );
+        };
+    }
+
+    public int validatePageLimit(Integer limit) {
+        if (limit == null) {
+            return unpagedCap;
+        }
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new ValidationException("Параметр 'limit' должен быть от 1 до " + maxPageLimit);
+        }
+        return limit;
+    }
+
+    public SimilarityMetric validateRecommendationParameters(int k, int limit, String metric) {
+        if (k < 1 || k > MAX_RECOMMENDATION_NEIGHBOURS) {
+            throw new ValidationException("Параметр 'k' должен быть от 1 до " + MAX_RECOMMENDATION_NEIGHBOURS);
+        }
+        if (limit < 1 || limit > MAX_RECOMMENDATION_LIMIT) {
+            throw new ValidationException("Параметр 'limit' должен быть от 1 до " + MAX_RECOMMENDATION_LIMIT);
+        }
+        try {
+            return SimilarityMetric.valueOf(metric.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(
+                    "Недопустимое значение в параметре 'metric': " + metric + ". Допустимые значения: jaccard, cosine"
+            );
+        }
+    }
 }
@@ -27,6 +27,7 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE,
     duration INTEGER,
     rating_id INTEGER,
+    likes_count INTEGER NOT NULL DEFAULT 0,
     FOREIGN KEY (rating_id) REFERENCES mpa_rating(rating_id) ON DELETE RESTRICT
 );
 
@@ -104,16 +105,37 @@ CREATE TABLE IF NOT EXISTS film_directors (
     FOREIGN KEY (director_id) REFERENCES directors(director_id) ON DELETE CASCADE
     );
 
+-- Счётчик лайков для БД, созданной до его появления: CREATE TABLE IF NOT EXISTS колонку не добавит.
+-- Колонка добавляется без NOT NULL, заполняется по likes один раз (только строки с NULL) и закрепляется
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER;
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) WHERE likes_count IS NULL;
+ALTER TABLE films ALTER COLUMN likes_count SET DEFAULT 0;
+ALTER TABLE films ALTER COLUMN likes_count SET NOT NULL;
+
+-- Рейтинг отзыва читается из reviews.useful, а колонка допускала NULL: такие строки пересчитываются
+-- по review_likes один раз, после чего колонка закрепляется как NOT NULL DEFAULT 0
+UPDATE reviews r SET useful = (SELECT COALESCE(SUM(CASE WHEN rl.is_like THEN 1 ELSE -1 END), 0) FROM review_likes rl
+    WHERE rl.review_id = r.review_id) WHERE useful IS NULL;
+ALTER TABLE reviews ALTER COLUMN useful SET DEFAULT 0;
+ALTER TABLE reviews ALTER COLUMN useful SET NOT NULL;
+
 -- Создание индексов для оптимизации запросов
 CREATE INDEX IF NOT EXISTS idx_films_rating ON films(rating_id);
+CREATE INDEX IF NOT EXISTS idx_films_popularity ON films(likes_count DESC, film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_film ON film_genre(film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_genre ON film_genre(genre_id);
 CREATE INDEX IF NOT EXISTS idx_likes_user ON likes(user_id);
 CREATE INDEX IF NOT EXISTS idx_likes_film ON likes(film_id);
 CREATE INDEX IF NOT EXISTS idx_friends_user ON friends(user_id);
 CREATE INDEX IF NOT EXISTS idx_friends_friend ON friends(friend_id);
-CREATE INDEX IF NOT EXISTS idx_events_user ON events(user_id);
+-- Лента пользователя: страницы вперёд по возрастающему индексу, назад (before) - по убывающему
+DROP INDEX IF EXISTS idx_events_user;
+CREATE INDEX IF NOT EXISTS idx_events_user_time ON events(user_id, timestamp, event_id);
+CREATE INDEX IF NOT EXISTS idx_events_user_time_desc ON events(user_id DESC, timestamp DESC, event_id DESC);
 CREATE INDEX IF NOT EXISTS idx_events_timestamp ON events(timestamp);
+-- Отзывы по рейтингу: все и по фильму
+CREATE INDEX IF NOT EXISTS idx_reviews_useful ON reviews(useful DESC, review_id);
+CREATE INDEX IF NOT EXISTS idx_reviews_film_useful ON reviews(film_id, useful DESC, review_id);
 
 -- Вставка предопределенных данных для MPA рейтингов
 MERGE INTO mpa_rating (rating_id, name) VALUES
@@ -17,6 +17,7 @@ import ru.yandex.practicum.filmorate.model.Director;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -165,6 +166,39 @@ class DirectorRepositoryTest {
         assertThat(directors.get(0).getName()).isEqualTo("Kubrick");
     }
 
+    @Test
+    void testFindDirectorsByFilmIds() {
+        long first = insertDirector("Kubrick");
+        long second = insertDirector("Lynch");
+
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                        "VALUES (2, 'Film 2', 'Desc', '2001-01-01', 120, 1)"
+        );
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", 1L, first);
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", 1L, second);
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", 2L, second);
+
+        Map<Long, List<Director>> directors = directorRepository.findDirectorsByFilmIds(List.of(1L, 2L));
+
+        assertThat(directors).containsOnlyKeys(1L, 2L);
+        assertThat(directors.get(1L)).extracting(Director::getName).containsExactly("Kubrick", "Lynch");
+        assertThat(directors.get(2L)).extracting(Director::getId).containsExactly(second);
+    }
+
+    @Test
+    void testFindAllDirectorIdsByFilm() {
+        long first = insertDirector("Kubrick");
+        long second = insertDirector("Lynch");
+
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", 1L, first);
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", 1L, second);
+
+        Map<Long, Set<Long>> directorIds = directorRepository.findAllDirectorIdsByFilm();
+
+        assertThat(directorIds).containsOnly(Map.entry(1L, Set.of(first, second)));
+    }
+
     @Test
     void testAddDirectorToFilm() {
         long directorId = insertDirector("Scott");
@@ -197,6 +231,35 @@ class DirectorRepositoryTest {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    void testAddDirectorsToFilm_ReplacesChangedAndSkipsUnknown() {
+        long kept = insertDirector("Kept");
+        long removed = insertDirector("Removed");
+        long added = insertDirector("Added");
+        directorRepository.addDirectorsToFilm(1L, Set.of(kept, removed));
+
+        directorRepository.addDirectorsToFilm(1L, Set.of(kept, added, 999L));
+
+        assertThat(directorRepository.findDirectorsByFilmId(1L))
+                .extracting(Director::getId)
+                .containsExactlyInAnyOrder(kept, added);
+    }
+
+    @Test
+    void testAddDirectorsToFilms() {
+        long first = insertDirector("Kubrick");
+        long second = insertDirector("Lynch");
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                        "VALUES (2, 'Film 2', 'Desc', '2001-01-01', 120, 1)"
+        );
+
+        directorRepository.addDirectorsToFilms(Map.of(1L, Set.of(first, second), 2L, Set.of(second)));
+
+        assertThat(directorRepository.findAllDirectorIdsByFilm())
+                .containsOnly(Map.entry(1L, Set.of(first, second)), Map.entry(2L, Set.of(second)));
+    }
+
     @Test
     void testDeleteDirectorsFromFilm() {
         long directorId = insertDirector("Remove");
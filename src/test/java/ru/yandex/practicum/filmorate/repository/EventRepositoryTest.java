@@ -13,6 +13,7 @@ import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -82,6 +83,145 @@ class EventRepositoryTest {
         assertThat(feed.get(1).getTimestamp()).isEqualTo(2000L);
     }
 
+    @Test
+    void testAddEvents() {
+        List<Event> events = List.of(
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 10L),
+                new Event(null, 1000L, 2L, EventType.FRIEND, EventOperation.ADD, 1L),
+                new Event(null, 1001L, 1L, EventType.LIKE, EventOperation.ADD, 11L)
+        );
+
+        eventRepository.addEvents(events);
+
+        assertThat(eventRepository.getUserFeed(1L)).extracting(Event::getEntityId).containsExactly(10L, 11L);
+        assertThat(eventRepository.getUserFeed(2L)).extracting(Event::getEventType).containsExactly(EventType.FRIEND);
+    }
+
+    @Test
+    void testAddEvents_SetsGeneratedIds() {
+        Event single = new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 10L);
+        List<Event> events = List.of(
+                new Event(null, 1001L, 1L, EventType.LIKE, EventOperation.ADD, 11L),
+                new Event(null, 1002L, 2L, EventType.FRIEND, EventOperation.ADD, 1L)
+        );
+
+        eventRepository.addEvent(single);
+        eventRepository.addEvents(events);
+
+        assertThat(single.getEventId()).isNotNull();
+        assertThat(events).extracting(Event::getEventId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(eventRepository.findById(events.get(1).getEventId()))
+                .get().extracting(Event::getUserId).isEqualTo(2L);
+        assertThat(eventRepository.findAllById(List.of(single.getEventId(), events.get(0).getEventId(), 999L)))
+                .extracting(Event::getEntityId).containsExactlyInAnyOrder(10L, 11L);
+    }
+
+    @Test
+    void testFindLatestBefore_ReturnsNewestFirst() {
+        List<Event> events = List.of(
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 2L),
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 3L),
+                new Event(null, 3000L, 1L, EventType.LIKE, EventOperation.ADD, 4L),
+                new Event(null, 2500L, 2L, EventType.LIKE, EventOperation.ADD, 5L)
+        );
+        eventRepository.addEvents(events);
+
+        assertThat(eventRepository.findLatestBefore(1L, null, 2))
+                .extracting(Event::getEntityId).containsExactly(4L, 3L);
+        assertThat(eventRepository.findLatestBefore(1L, events.get(2), 10))
+                .extracting(Event::getEntityId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void testFindLatestBeforeForAuthors_MergesAuthorsNewestFirst() {
+        jdbcTemplate.update(
+                "INSERT INTO users (user_id, email, login, name, birthday) " +
+                        "VALUES (3, 'user3@mail.ru', 'user3', 'User Three', '1992-01-01')"
+        );
+        List<Event> events = List.of(
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 2000L, 2L, EventType.LIKE, EventOperation.ADD, 2L),
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 3L),
+                new Event(null, 3000L, 2L, EventType.LIKE, EventOperation.ADD, 4L),
+                new Event(null, 4000L, 3L, EventType.LIKE, EventOperation.ADD, 5L)
+        );
+        eventRepository.addEvents(events);
+
+        assertThat(eventRepository.findLatestBefore(List.of(1L, 2L), null, 3))
+                .extracting(Event::getEntityId).containsExactly(4L, 3L, 2L);
+        assertThat(eventRepository.findLatestBefore(List.of(1L, 2L), events.get(2), 10))
+                .extracting(Event::getEntityId).containsExactly(2L, 1L);
+        assertThat(eventRepository.findLatestBefore(List.of(3L, 99L), null, 10))
+                .extracting(Event::getEntityId).containsExactly(5L);
+    }
+
+    @Test
+    void testFindOlderThan_ReturnsOldestFirstUpToLimit() {
+        eventRepository.addEvents(List.of(
+                new Event(null, 3000L, 1L, EventType.LIKE, EventOperation.ADD, 3L),
+                new Event(null, 1000L, 2L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 2L),
+                new Event(null, 4000L, 1L, EventType.LIKE, EventOperation.ADD, 4L)
+        ));
+
+        assertThat(eventRepository.findOlderThan(3500L, 2)).extracting(Event::getEntityId).containsExactly(1L, 2L);
+        assertThat(eventRepository.findOlderThan(3500L, 10)).extracting(Event::getEntityId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void testCountEventsOverLimitAndFindOldestUserEvents() {
+        eventRepository.addEvents(List.of(
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 2L),
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 3000L, 1L, EventType.LIKE, EventOperation.ADD, 3L),
+                new Event(null, 1000L, 2L, EventType.LIKE, EventOperation.ADD, 4L)
+        ));
+
+        assertThat(eventRepository.countEventsOverLimit(1)).containsOnly(Map.entry(1L, 3L));
+        assertThat(eventRepository.findOldestUserEvents(1L, 2)).extracting(Event::getEntityId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testDeleteAllById() {
+        List<Event> events = List.of(
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 2000L, 1L, EventType.LIKE, EventOperation.ADD, 2L)
+        );
+        eventRepository.addEvents(events);
+
+        int deleted = eventRepository.deleteAllById(List.of(events.get(0).getEventId(), 999L));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(eventRepository.getUserFeed(1L)).extracting(Event::getEntityId).containsExactly(2L);
+    }
+
+    @Test
+    void testGetUserFeed_PagesBySinceAndBeforeCursors() {
+        // Две пары событий с одинаковым timestamp: внутри порядок по event_id
+        eventRepository.addEvents(List.of(
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 1L),
+                new Event(null, 1000L, 1L, EventType.LIKE, EventOperation.ADD, 2L),
+                new Event(null, 1001L, 2L, EventType.LIKE, EventOperation.ADD, 99L),
+                new Event(null, 1002L, 1L, EventType.LIKE, EventOperation.ADD, 3L),
+                new Event(null, 1002L, 1L, EventType.LIKE, EventOperation.ADD, 4L),
+                new Event(null, 1003L, 1L, EventType.LIKE, EventOperation.ADD, 5L)
+        ));
+        List<Event> all = eventRepository.getUserFeed(1L);
+
+        List<Event> first = eventRepository.getUserFeed(1L, null, null, 2);
+        List<Event> second = eventRepository.getUserFeed(1L, first.get(1), null, 2);
+        List<Event> beforeLast = eventRepository.getUserFeed(1L, null, all.get(4), 3);
+        List<Event> between = eventRepository.getUserFeed(1L, all.get(0), all.get(3), 10);
+
+        assertThat(all).extracting(Event::getEntityId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(first).extracting(Event::getEntityId).containsExactly(1L, 2L);
+        assertThat(second).extracting(Event::getEntityId).containsExactly(3L, 4L);
+        assertThat(beforeLast).extracting(Event::getEntityId).containsExactly(2L, 3L, 4L);
+        assertThat(between).extracting(Event::getEntityId).containsExactly(2L, 3L);
+        assertThat(eventRepository.findUserEvent(2L, all.get(0).getEventId())).isEmpty();
+    }
+
     @Test
     void testGetUserFeed_WhenUserHasNoEvents() {
         List<Event> feed = eventRepository.getUserFeed(1L);
@@ -6,12 +6,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
 import ru.yandex.practicum.filmorate.dao.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dao.repository.mappers.LikeRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -70,6 +76,46 @@ class FilmRepositoryTest {
         assertThat(retrievedFilm.get().getName()).isEqualTo("New Film");
     }
 
+    @Test
+    void testCreateAll() {
+        // Arrange
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Batch Film " + i);
+            film.setDescription("Batch Description " + i);
+            film.setReleaseDate(LocalDate.of(2010 + i, 1, 1));
+            film.setDuration(90 + i);
+            film.setMpa(2L);
+            films.add(film);
+        }
+
+        // Act
+        List<Film> created = filmRepository.createAll(films);
+
+        // Assert
+        assertThat(created).extracting(Film::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+        for (Film film : created) {
+            assertThat(filmRepository.getById(film.getId()))
+                    .get()
+                    .extracting(Film::getName)
+                    .isEqualTo(film.getName());
+        }
+        assertThat(filmRepository.getAll()).hasSize(6);
+    }
+
+    @Test
+    void testFindExistingIds() {
+        // Arrange
+        long existingId = filmRepository.getAll().iterator().next().getId();
+
+        // Act
+        Set<Long> existing = filmRepository.findExistingIds(List.of(existingId, 999L));
+
+        // Assert
+        assertThat(existing).containsExactly(existingId);
+    }
+
     @Test
     void testUpdate() {
         // Сначала получаем ID существующего фильма
@@ -111,6 +157,27 @@ class FilmRepositoryTest {
                 .containsExactlyInAnyOrder("Film One", "Film Two", "Film Three");
     }
 
+    @Test
+    void testGetAll_Page() {
+        List<Long> ids = filmRepository.getAll().stream().map(Film::getId).sorted().toList();
+
+        List<Film> firstPage = filmRepository.getAll(null, 2);
+        List<Film> secondPage = filmRepository.getAll(firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage).extracting(Film::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(secondPage).extracting(Film::getId).containsExactly(ids.get(2));
+    }
+
+    @Test
+    void testForEachBatch() {
+        List<List<Long>> batches = new ArrayList<>();
+
+        filmRepository.forEachBatch(1, 2, films -> batches.add(films.stream().map(Film::getId).toList()));
+
+        List<Long> ids = filmRepository.getAll().stream().map(Film::getId).sorted().toList();
+        assertThat(batches).containsExactly(List.of(ids.get(0), ids.get(1)), List.of(ids.get(2)));
+    }
+
     @Test
     void testGetById() {
         // Сначала получаем ID существующего фильма
@@ -127,6 +194,21 @@ class FilmRepositoryTest {
         assertThat(film.get().getDescription()).isEqualTo("Description One");
     }
 
+    @Test
+    void testGetByIds_PreservesRequestedOrder() {
+        // Arrange
+        List<Long> ids = filmRepository.getAll().stream()
+                .map(Film::getId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        // Act
+        List<Film> films = filmRepository.getByIds(List.of(ids.get(0), 999L, ids.get(2)));
+
+        // Assert
+        assertThat(films).extracting(Film::getId).containsExactly(ids.get(0), ids.get(2));
+    }
+
     @Test
     void testGetById_WhenNotFound() {
         // Act
@@ -198,6 +280,7 @@ class FilmRepositoryTest {
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId1, userId1);
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId1, userId2);
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId2, userId1);
+        new LikeRepository(jdbcTemplate, new LikeRowMapper()).recalculateLikesCount();
 
         // --- Act ---
         List<Film> popularFilms = filmRepository.getPopularFilms(
@@ -212,6 +295,24 @@ class FilmRepositoryTest {
         assertThat(popularFilms.get(1).getId()).isEqualTo(filmId2);
     }
 
+    @Test
+    void testGetPopularFilms_WithGenreAndYearFilters() {
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id, likes_count) " +
+                "VALUES (300, 'Popular Thriller', 'Desc', '2010-05-01', 120, 1, 5)");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id, likes_count) " +
+                "VALUES (301, 'Quiet Thriller', 'Desc', '2010-12-31', 120, 1, 1)");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id, likes_count) " +
+                "VALUES (302, 'Old Thriller', 'Desc', '2009-12-31', 120, 1, 9)");
+        // Несколько жанров у фильма не должны влиять на порядок
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (300, 4), (301, 4), (301, 1), (302, 4)");
+
+        List<Film> byGenreAndYear = filmRepository.getPopularFilms(4, 2010, 10);
+        List<Film> byGenre = filmRepository.getPopularFilms(4, null, 2);
+
+        assertThat(byGenreAndYear).extracting(Film::getId).containsExactly(300L, 301L);
+        assertThat(byGenre).extracting(Film::getId).containsExactly(302L, 300L);
+    }
+
     @Test
     void testValidateId() {
         // Сначала получаем ID существующего фильма
@@ -223,6 +324,40 @@ class FilmRepositoryTest {
         assertThat(filmRepository.validateId(999L)).isFalse();
     }
 
+    @Test
+    void testValidateId_UsesLoadedIdsAndChecksSparseIdsInDb() {
+        long existingFilmId = filmRepository.getAll().iterator().next().getId();
+        long sparseFilmId = 100_000_000L;
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (?, 'Sparse', 'Desc', '2000-01-01', 120, 1)", sparseFilmId);
+        filmRepository.loadIds();
+
+        // Обычный id отвечается из памяти, id вне плотного диапазона всегда проверяется в БД
+        jdbcTemplate.update("DELETE FROM films WHERE film_id IN (?, ?)", existingFilmId, sparseFilmId);
+
+        assertThat(filmRepository.validateId(existingFilmId)).isTrue();
+        assertThat(filmRepository.validateId(sparseFilmId)).isFalse();
+        assertThat(filmRepository.validateId(sparseFilmId + 1)).isFalse();
+    }
+
+    @Test
+    void testValidateId_ForgetsFilmsOfRolledBackTransaction() {
+        filmRepository.loadIds();
+        Film film = new Film();
+        film.setName("Batch Film");
+        film.setDescription("Batch Description");
+        film.setReleaseDate(LocalDate.of(2010, 1, 1));
+        film.setDuration(90);
+        film.setMpa(1L);
+
+        long createdId = filmRepository.createAll(List.of(film)).get(0).getId();
+        assertThat(filmRepository.validateId(createdId)).isTrue();
+
+        TestTransaction.end();
+
+        assertThat(filmRepository.validateId(createdId)).isFalse();
+    }
+
     @Test
     void testDeleteFilm() {
         // Arrange - получим ID существующего фильма
@@ -320,6 +455,7 @@ class FilmRepositoryTest {
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (101, 10)");
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (101, 11)");
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (100, 12)");
+        new LikeRepository(jdbcTemplate, new LikeRowMapper()).recalculateLikesCount();
 
         List<Film> result = filmRepository.searchFilms("matrix", Set.of("title"));
 
@@ -362,6 +498,7 @@ class FilmRepositoryTest {
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (101, 20)");
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (101, 21)");
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (100, 22)");
+        new LikeRepository(jdbcTemplate, new LikeRowMapper()).recalculateLikesCount();
 
         // Act - ищем по описанию
         List<Film> result = filmRepository.searchFilms("matrix", Set.of("description"));
@@ -376,6 +513,64 @@ class FilmRepositoryTest {
                 .containsExactly("Film B", "Film A", "Film C");
     }
 
+    @Test
+    void searchFilms_pagedByLikesCountCursor() {
+        jdbcTemplate.update(
+                "INSERT INTO users (user_id, email, login, name, birthday) " +
+                        "VALUES (10, 'u1@mail.ru', 'user1', 'User One', '1990-01-01')"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (100, 'Matrix', 'Desc', '1999-03-31', 136)"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (101, 'Matrix Reloaded', 'Desc', '2003-05-15', 138)"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (102, 'Matrix Revolutions', 'Desc', '2003-11-05', 129)"
+        );
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (102, 10)");
+        new LikeRepository(jdbcTemplate, new LikeRowMapper()).recalculateLikesCount();
+
+        List<FilmRank> firstPage = filmRepository.searchFilmRanks("matrix", Set.of("title"), null, null, 2);
+        List<FilmRank> secondPage = filmRepository.searchFilmRanks("matrix", Set.of("title"), null, 100L, 2);
+
+        assertThat(firstPage).containsExactly(new FilmRank(102, 1), new FilmRank(100, 0));
+        assertThat(secondPage).containsExactly(new FilmRank(101, 0));
+    }
+
+    @Test
+    void searchFilms_cursorWithLikesStableWhenAnchorGainsLikes() {
+        jdbcTemplate.update(
+                "INSERT INTO users (user_id, email, login, name, birthday) " +
+                        "VALUES (10, 'u1@mail.ru', 'user1', 'User One', '1990-01-01')"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (100, 'Matrix', 'Desc', '1999-03-31', 136)"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (101, 'Matrix Reloaded', 'Desc', '2003-05-15', 138)"
+        );
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration) " +
+                        "VALUES (102, 'Matrix Revolutions', 'Desc', '2003-11-05', 129)"
+        );
+        List<FilmRank> firstPage = filmRepository.searchFilmRanks("matrix", Set.of("title"), null, null, 1);
+        assertThat(firstPage).containsExactly(new FilmRank(100, 0));
+
+        // Фильм-якорь получил лайк: по старой позиции курсора следующая страница не сдвигается
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (100, 10)");
+        new LikeRepository(jdbcTemplate, new LikeRowMapper()).recalculateLikesCount();
+
+        FilmRank after = firstPage.get(0);
+        assertThat(filmRepository.searchFilmRanks("matrix", Set.of("title"), after.likes(), after.filmId(), 2))
+                .containsExactly(new FilmRank(101, 0), new FilmRank(102, 0));
+    }
+
     @Test
     void searchFilms_byDirector() {
         jdbcTemplate.update("INSERT INTO directors (director_id, name) VALUES (1, 'Nolan')");
@@ -416,6 +611,24 @@ class FilmRepositoryTest {
         assertThat(result).hasSize(2);
     }
 
+    @Test
+    void searchFilms_byTitleAndDirector_returnsEachFilmOnce() {
+        jdbcTemplate.update("INSERT INTO directors (director_id, name) VALUES (1, 'Ridley Scott')");
+        jdbcTemplate.update("INSERT INTO directors (director_id, name) VALUES (2, 'Tony Scott')");
+
+        jdbcTemplate.update(
+                "INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                        "VALUES (1, 'Scott Brothers', 'Desc', '2000-01-01', 120, 1)"
+        );
+
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (1, 1)");
+        jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (1, 2)");
+
+        List<Film> result = filmRepository.searchFilms("scott", Set.of("title", "director"));
+
+        assertThat(result).extracting(Film::getId).containsExactly(1L);
+    }
+
     @Test
     void searchFilms_withoutSearchBy_usesTitleAndDirector() {
         jdbcTemplate.update("INSERT INTO directors (director_id, name) VALUES (1, 'Tarantino')");
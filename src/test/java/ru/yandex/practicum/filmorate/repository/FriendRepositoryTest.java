@@ -12,7 +12,9 @@ import ru.yandex.practicum.filmorate.dao.repository.mappers.FriendRowMapper;
 import ru.yandex.practicum.filmorate.model.Friend;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -45,6 +47,21 @@ class FriendRepositoryTest {
         jdbcTemplate.update("INSERT INTO friends (user_id, friend_id, status) VALUES (2, 3, 'CONFIRMED')");
     }
 
+    @Test
+    void testSaveAllIfAbsent_KeepsExistingStatus() {
+        // Act
+        List<Friend> saved = friendRepository.saveAllIfAbsent(List.of(
+                new Friend(1L, 2L, "NOT_CONFIRMED"),
+                new Friend(2L, 1L, "NOT_CONFIRMED"),
+                new Friend(3L, 1L, "NOT_CONFIRMED")
+        ));
+
+        // Assert
+        assertThat(saved).extracting(Friend::getUserId).containsExactly(2L, 3L);
+        assertThat(friendRepository.findById(1L, 2L)).get().extracting(Friend::getStatus).isEqualTo("CONFIRMED");
+        assertThat(friendRepository.findById(3L, 1L)).isPresent();
+    }
+
     @Test
     void testFindById() {
         // Act
@@ -66,6 +83,13 @@ class FriendRepositoryTest {
         assertThat(friend).isEmpty();
     }
 
+    @Test
+    void testFindAllFriendIdsByUser() {
+        Map<Long, Set<Long>> friendIds = friendRepository.findAllFriendIdsByUser();
+
+        assertThat(friendIds).containsOnly(Map.entry(1L, Set.of(2L, 3L)), Map.entry(2L, Set.of(3L)));
+    }
+
     @Test
     void testFindByUserId() {
         // Act
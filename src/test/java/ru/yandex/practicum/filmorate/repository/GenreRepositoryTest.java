@@ -13,6 +13,7 @@ import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -121,6 +122,31 @@ class GenreRepositoryTest {
                 .containsExactlyInAnyOrder("Комедия", "Драма", "Мультфильм");
     }
 
+    @Test
+    void testFindGenresByFilmIds() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) VALUES (2, 'Second Film', 'Description', '2001-01-01', 130, 1)");
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (2, 6)");
+
+        // Act
+        Map<Long, Set<Genre>> genres = genreRepository.findGenresByFilmIds(List.of(1L, 2L, 999L));
+
+        // Assert
+        assertThat(genres).containsOnlyKeys(1L, 2L);
+        assertThat(genres.get(1L)).extracting(Genre::getId).containsExactly(1L, 2L, 3L);
+        assertThat(genres.get(2L)).extracting(Genre::getName).containsExactly("Боевик");
+    }
+
+    @Test
+    void testFindAllGenreIdsByFilm() {
+        // Act
+        Map<Long, Set<Long>> genres = genreRepository.findAllGenreIdsByFilm();
+
+        // Assert
+        assertThat(genres).containsOnlyKeys(1L);
+        assertThat(genres.get(1L)).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
     @Test
     void testSaveGenresIdsByFilm() {
         // Arrange
@@ -138,6 +164,30 @@ class GenreRepositoryTest {
         assertThat(updatedGenreIds).containsExactlyInAnyOrder(4L, 5L, 6L);
     }
 
+    @Test
+    void testSaveGenresIdsByFilm_AppliesOnlyDifference() {
+        // Act
+        genreRepository.saveGenresIdsByFilm(1L, Set.of(2L, 3L, 4L));
+
+        // Assert
+        assertThat(genreRepository.findIdsByFilm(1L)).containsExactlyInAnyOrder(2L, 3L, 4L);
+    }
+
+    @Test
+    void testAddGenresToFilms() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) VALUES (2, 'Second Film', 'Description', '2001-01-01', 100, 1)");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) VALUES (3, 'Third Film', 'Description', '2002-01-01', 100, 1)");
+
+        // Act
+        genreRepository.addGenresToFilms(Map.of(2L, Set.of(4L, 5L), 3L, Set.of(6L)));
+
+        // Assert
+        assertThat(genreRepository.findIdsByFilm(2L)).containsExactlyInAnyOrder(4L, 5L);
+        assertThat(genreRepository.findIdsByFilm(3L)).containsExactly(6L);
+        assertThat(genreRepository.findIdsByFilm(1L)).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
     @Test
     void testSaveGenresIdsByFilm_WithEmptySet() {
         // Arrange
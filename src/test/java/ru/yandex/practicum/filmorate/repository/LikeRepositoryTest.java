@@ -12,6 +12,7 @@ import ru.yandex.practicum.filmorate.dao.repository.mappers.LikeRowMapper;
 import ru.yandex.practicum.filmorate.model.Like;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,6 +49,24 @@ class LikeRepositoryTest {
         jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (2, 1)");
     }
 
+    @Test
+    void testSaveAllIfAbsent_SkipsExistingAndUpdatesCounters() {
+        // Act
+        List<Like> saved = likeRepository.saveAllIfAbsent(List.of(
+                new Like(1L, 1L),
+                new Like(1L, 3L),
+                new Like(2L, 2L),
+                new Like(2L, 3L)
+        ));
+
+        // Assert
+        assertThat(saved).containsExactly(new Like(1L, 3L), new Like(2L, 2L), new Like(2L, 3L));
+        assertThat(likeRepository.findUserIdsByFilmId(1L)).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(likeRepository.findUserIdsByFilmId(2L)).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(jdbcTemplate.queryForList("SELECT likes_count FROM films ORDER BY film_id", Integer.class))
+                .containsExactly(1, 2);
+    }
+
     @Test
     void testFindByFilmId() {
         // Act
@@ -98,6 +117,38 @@ class LikeRepositoryTest {
         assertThat(userIds).isEmpty();
     }
 
+    @Test
+    void testFindUserIdsByFilmIds() {
+        // Act
+        Map<Long, Set<Long>> userIds = likeRepository.findUserIdsByFilmIds(List.of(1L, 2L, 999L));
+
+        // Assert
+        assertThat(userIds).containsOnlyKeys(1L, 2L);
+        assertThat(userIds.get(1L)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(userIds.get(2L)).containsExactly(1L);
+    }
+
+    @Test
+    void testCountLikesByFilm() {
+        // Act
+        Map<Long, Long> counts = likeRepository.countLikesByFilm();
+
+        // Assert
+        assertThat(counts).containsOnly(Map.entry(1L, 2L), Map.entry(2L, 1L));
+    }
+
+    @Test
+    void testFindAllFilmIdsByUser() {
+        // Act
+        Map<Long, List<Long>> filmIdsByUser = likeRepository.findAllFilmIdsByUser();
+
+        // Assert
+        assertThat(filmIdsByUser).containsOnly(
+                Map.entry(1L, List.of(1L, 2L)),
+                Map.entry(2L, List.of(1L))
+        );
+    }
+
     @Test
     void testSave() {
         // Arrange
@@ -115,6 +166,25 @@ class LikeRepositoryTest {
         assertThat(likes).extracting(Like::getUserId).contains(3L);
     }
 
+    @Test
+    void testSaveIfAbsent_InsertsOnlyOnceAndCountsOnce() {
+        // Arrange
+        likeRepository.recalculateLikesCount();
+
+        // Act
+        boolean first = likeRepository.saveIfAbsent(new Like(2L, 3L));
+        boolean second = likeRepository.saveIfAbsent(new Like(2L, 3L));
+        boolean existing = likeRepository.saveIfAbsent(new Like(1L, 1L));
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(existing).isFalse();
+        assertThat(likeRepository.findUserIdsByFilmId(2L)).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(likesCount(1L)).isEqualTo(2);
+        assertThat(likesCount(2L)).isEqualTo(2);
+    }
+
     @Test
     void testDelete() {
         // Act
@@ -129,6 +199,36 @@ class LikeRepositoryTest {
         assertThat(likes).extracting(Like::getUserId).containsOnly(2L);
     }
 
+    @Test
+    void testSaveAndDelete_MaintainLikesCount() {
+        // Arrange
+        likeRepository.recalculateLikesCount();
+
+        // Act
+        likeRepository.save(new Like(2L, 3L));
+        likeRepository.delete(1L, 1L);
+        likeRepository.delete(1L, 999L);
+
+        // Assert
+        assertThat(likesCount(1L)).isEqualTo(1);
+        assertThat(likesCount(2L)).isEqualTo(2);
+    }
+
+    @Test
+    void testRecalculateLikesCount() {
+        // Arrange - лайки из setUp вставлены в обход репозитория
+        assertThat(likesCount(1L)).isZero();
+
+        // Act
+        int fixed = likeRepository.recalculateLikesCount();
+
+        // Assert
+        assertThat(fixed).isEqualTo(2);
+        assertThat(likesCount(1L)).isEqualTo(2);
+        assertThat(likesCount(2L)).isEqualTo(1);
+        assertThat(likeRepository.recalculateLikesCount()).isZero();
+    }
+
     @Test
     void testDelete_WhenNotFound() {
         // Act
@@ -137,4 +237,8 @@ class LikeRepositoryTest {
         // Assert
         assertThat(isDeleted).isFalse();
     }
+
+    private Integer likesCount(long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
 }
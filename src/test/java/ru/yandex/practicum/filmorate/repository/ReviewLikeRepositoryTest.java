@@ -14,6 +14,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.ReviewLike;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -126,15 +127,6 @@ class ReviewLikeRepositoryTest {
                 .isInstanceOf(NotFoundException.class);
     }
 
-    @Test
-    void testCountLikesAndDislikes() {
-        reviewLikeRepository.create(buildLike(reviewId, 1L, true));
-        reviewLikeRepository.create(buildLike(reviewId, 2L, false));
-
-        assertThat(reviewLikeRepository.countLikes(reviewId)).isEqualTo(1);
-        assertThat(reviewLikeRepository.countDislikes(reviewId)).isEqualTo(1);
-    }
-
     @Test
     void testExists() {
         reviewLikeRepository.create(buildLike(reviewId, 2L, true));
@@ -151,6 +143,42 @@ class ReviewLikeRepositoryTest {
         assertThat(review.getUseful()).isEqualTo(5L);
     }
 
+    @Test
+    void testUpdateIfChanged_ChangesOnlyDifferentReaction() {
+        reviewLikeRepository.create(buildLike(reviewId, 2L, true));
+
+        assertThat(reviewLikeRepository.updateIfChanged(buildLike(reviewId, 2L, true))).isFalse();
+        assertThat(reviewLikeRepository.updateIfChanged(buildLike(reviewId, 2L, false))).isTrue();
+        assertThat(reviewLikeRepository.updateIfChanged(buildLike(reviewId, 1L, false))).isFalse();
+        assertThat(reviewLikeRepository.findByReviewIdAndUserId(reviewId, 2L).orElseThrow().getIsLike()).isFalse();
+    }
+
+    @Test
+    void testDeleteReaction_DeletesOnlyMatchingType() {
+        reviewLikeRepository.create(buildLike(reviewId, 2L, true));
+
+        assertThat(reviewLikeRepository.deleteReaction(reviewId, 2L, false)).isFalse();
+        assertThat(reviewLikeRepository.deleteReaction(reviewId, 2L, true)).isTrue();
+        assertThat(reviewLikeRepository.findByReviewIdAndUserId(reviewId, 2L)).isEmpty();
+    }
+
+    @Test
+    void testIncrementReviewUseful() {
+        reviewLikeRepository.incrementReviewUseful(reviewId, 2);
+        reviewLikeRepository.incrementReviewUseful(reviewId, -3);
+
+        assertThat(reviewRepository.findById(reviewId).orElseThrow().getUseful()).isEqualTo(-1L);
+    }
+
+    @Test
+    void testIncrementReviewUsefulAll() {
+        reviewLikeRepository.incrementReviewUseful(reviewId, 1);
+
+        reviewLikeRepository.incrementReviewUsefulAll(Map.of(reviewId, 4L, 999L, 1L));
+
+        assertThat(reviewRepository.findById(reviewId).orElseThrow().getUseful()).isEqualTo(5L);
+    }
+
     @Test
     void testFindAllReviewLikes() {
         reviewLikeRepository.create(buildLike(reviewId, 1L, true));
@@ -30,6 +30,7 @@ class ReviewRepositoryTest {
     void setUp() {
         reviewRepository = new ReviewRepository(jdbcTemplate, new ReviewRowMapper());
 
+        jdbcTemplate.update("DELETE FROM review_likes");
         jdbcTemplate.update("DELETE FROM reviews");
         jdbcTemplate.update("DELETE FROM films");
         jdbcTemplate.update("DELETE FROM users");
@@ -77,6 +78,24 @@ class ReviewRepositoryTest {
         assertThat(fromDb.getUseful()).isEqualTo(5L);
     }
 
+    @Test
+    void testUpdateContent_KeepsUseful() {
+        long reviewId = insertReview("Old text", true, 4);
+
+        Review updated = new Review();
+        updated.setReviewId(reviewId);
+        updated.setContent("Updated text");
+        updated.setPositive(false);
+        updated.setUseful(0L);
+
+        reviewRepository.updateContent(updated);
+
+        Review fromDb = reviewRepository.findById(reviewId).orElseThrow();
+        assertThat(fromDb.getContent()).isEqualTo("Updated text");
+        assertThat(fromDb.isPositive()).isFalse();
+        assertThat(fromDb.getUseful()).isEqualTo(4L);
+    }
+
     @Test
     void testSave_CreatePath() {
         Review review = buildReview("New", true, 0);
@@ -176,6 +195,41 @@ class ReviewRepositoryTest {
         assertThat(review.getUseful()).isEqualTo(7L);
     }
 
+    @Test
+    void testFindByFilmId_TiesOrderedById() {
+        long first = insertReview("First", true, 2);
+        long second = insertReview("Second", true, 2);
+        long best = insertReview("Best", true, 4);
+
+        assertThat(reviewRepository.findByFilmId(1L, 10))
+                .extracting(Review::getReviewId)
+                .containsExactly(best, first, second);
+        assertThat(reviewRepository.findAll(10))
+                .extracting(Review::getReviewId)
+                .containsExactly(best, first, second);
+    }
+
+    @Test
+    void testRecalculateUseful() {
+        jdbcTemplate.update(
+                "INSERT INTO users (user_id, email, login, name, birthday) " +
+                        "VALUES (2, 'user2@mail.ru', 'user2', 'User 2', '1990-01-01')"
+        );
+        long liked = insertReview("Liked", true, 0);
+        long consistent = insertReview("Consistent", true, 0);
+        long stale = insertReview("Stale", true, 5);
+        jdbcTemplate.update("INSERT INTO review_likes (review_id, user_id, is_like) VALUES (?, 1, true)", liked);
+        jdbcTemplate.update("INSERT INTO review_likes (review_id, user_id, is_like) VALUES (?, 2, true)", liked);
+        jdbcTemplate.update("INSERT INTO review_likes (review_id, user_id, is_like) VALUES (?, 1, false)", stale);
+
+        int fixed = reviewRepository.recalculateUseful();
+
+        assertThat(fixed).isEqualTo(2);
+        assertThat(reviewRepository.findById(liked).orElseThrow().getUseful()).isEqualTo(2L);
+        assertThat(reviewRepository.findById(consistent).orElseThrow().getUseful()).isEqualTo(0L);
+        assertThat(reviewRepository.findById(stale).orElseThrow().getUseful()).isEqualTo(-1L);
+    }
+
     private long insertReview(String content, boolean positive, long useful) {
         Review review = buildReview(content, positive, useful);
         return reviewRepository.create(review).getReviewId();
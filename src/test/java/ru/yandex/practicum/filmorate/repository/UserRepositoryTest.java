@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
 import ru.yandex.practicum.filmorate.dao.repository.UserRepository;
 import ru.yandex.practicum.filmorate.dao.repository.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.User;
@@ -15,6 +16,7 @@ import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -116,6 +118,40 @@ class UserRepositoryTest {
                 );
     }
 
+    @Test
+    void testGetAll_Page() {
+        List<Long> ids = userRepository.getAllIds();
+
+        List<User> firstPage = userRepository.getAll(null, 2);
+        List<User> secondPage = userRepository.getAll(firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage).extracting(User::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(secondPage).extracting(User::getId).containsExactly(ids.get(2));
+    }
+
+    @Test
+    void testGetAllIds() {
+        // Act
+        List<Long> ids = userRepository.getAllIds();
+
+        // Assert
+        assertThat(ids).hasSize(3).isSorted();
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(
+                userRepository.getAll().stream().map(User::getId).toList());
+    }
+
+    @Test
+    void testFindExistingIds() {
+        // Arrange
+        List<Long> ids = userRepository.getAllIds();
+
+        // Act
+        Set<Long> existing = userRepository.findExistingIds(List.of(ids.get(0), ids.get(2), 999L));
+
+        // Assert
+        assertThat(existing).containsExactlyInAnyOrder(ids.get(0), ids.get(2));
+    }
+
     @Test
     void testGetById() {
         // Получаем ID существующего пользователя
@@ -196,6 +232,47 @@ class UserRepositoryTest {
         assertThat(userRepository.validateId(999L)).isFalse();
     }
 
+    @Test
+    void testValidateId_AnswersFromLoadedIds() {
+        Long userId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE email = 'user1@test.com'", Long.class);
+        userRepository.loadIds();
+
+        // Строка удалена в обход репозитория - известный id отвечается из памяти, остальные проверяются в БД
+        jdbcTemplate.update("DELETE FROM friends");
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+
+        assertThat(userRepository.validateId(userId)).isTrue();
+        assertThat(userRepository.validateId(999L)).isFalse();
+        assertThat(userRepository.validateId(Long.MAX_VALUE)).isFalse();
+        assertThat(userRepository.findExistingIds(List.of(userId, 999L))).containsExactly(userId);
+    }
+
+    @Test
+    void testValidateId_TracksCreateAndDeleteByTransactionOutcome() {
+        Long userId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE email = 'user1@test.com'", Long.class);
+        userRepository.loadIds();
+
+        long createdId = userRepository.create(newUser("newuser")).getId();
+        userRepository.deleteUser(userId);
+
+        // До фиксации созданный id в память не попадает и проверяется в БД, удалённый остаётся в памяти
+        assertThat(userRepository.validateId(createdId)).isTrue();
+        assertThat(userRepository.validateId(userId)).isTrue();
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", createdId);
+        assertThat(userRepository.validateId(createdId)).isFalse();
+
+        TestTransaction.end();
+
+        // Транзакция откатилась: созданного пользователя нет, удалённый остался
+        assertThat(userRepository.validateId(createdId)).isFalse();
+        assertThat(userRepository.validateId(userId)).isTrue();
+
+        // Вне транзакции изменение фиксируется сразу, и id попадает в память
+        long committedId = userRepository.create(newUser("committed")).getId();
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", committedId);
+        assertThat(userRepository.validateId(committedId)).isTrue();
+    }
+
     @Test
     void testDeleteUser() {
         // Arrange - получим ID существующего пользователя
@@ -253,4 +330,60 @@ class UserRepositoryTest {
         );
         assertThat(friendsCount).isZero();
     }
+
+    @Test
+    void testDeleteUser_DecrementsLikesCountOfLikedFilms() {
+        // Arrange
+        Long userId = jdbcTemplate.queryForObject(
+                "SELECT user_id FROM users WHERE email = 'user1@test.com'",
+                Long.class
+        );
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id, likes_count) " +
+                "VALUES (500, 'Liked Film', 'Desc', '2000-01-01', 100, 1, 3)");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (500, ?)", userId);
+
+        // Act
+        userRepository.deleteUser(userId);
+
+        // Assert
+        Integer likesCount = jdbcTemplate.queryForObject(
+                "SELECT likes_count FROM films WHERE film_id = 500", Integer.class);
+        assertThat(likesCount).isEqualTo(2);
+    }
+
+    @Test
+    void testDeleteUser_RevertsReactionsOnReviews() {
+        // Arrange
+        Long userId = jdbcTemplate.queryForObject(
+                "SELECT user_id FROM users WHERE email = 'user1@test.com'",
+                Long.class
+        );
+        Long otherUserId = jdbcTemplate.queryForObject(
+                "SELECT user_id FROM users WHERE email = 'user2@test.com'",
+                Long.class
+        );
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (500, 'Reviewed Film', 'Desc', '2000-01-01', 100, 1)");
+        jdbcTemplate.update("INSERT INTO reviews (review_id, content, is_positive, user_id, film_id, useful) " +
+                "VALUES (600, 'Liked', true, ?, 500, 2), (601, 'Disliked', false, ?, 500, -1), " +
+                "(602, 'Untouched', true, ?, 500, 1)", otherUserId, otherUserId, otherUserId);
+        jdbcTemplate.update("INSERT INTO review_likes (review_id, user_id, is_like) " +
+                "VALUES (600, ?, true), (601, ?, false), (602, ?, true)", userId, userId, otherUserId);
+
+        // Act
+        userRepository.deleteUser(userId);
+
+        // Assert
+        assertThat(jdbcTemplate.queryForList("SELECT useful FROM reviews ORDER BY review_id", Integer.class))
+                .containsExactly(1, 0, 1);
+    }
+
+    private static User newUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@test.com");
+        user.setLogin(login);
+        user.setName("New User");
+        user.setBirthday(LocalDate.of(1995, 5, 5));
+        return user;
+    }
 }
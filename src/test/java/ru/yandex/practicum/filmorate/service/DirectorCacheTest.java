@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DirectorCacheTest {
+    private DirectorCache directorCache;
+
+    @BeforeEach
+    void setUp() {
+        DirectorRepository directorRepository = mock(DirectorRepository.class);
+        directorCache = new DirectorCache(directorRepository);
+
+        when(directorRepository.findAll()).thenReturn(List.of(
+                new Director(1L, "Nolan"), new Director(2L, "Scott"), new Director(3L, "Fincher")));
+        when(directorRepository.findAllDirectorIdsByFilm()).thenReturn(Map.of(10L, Set.of(2L, 1L), 11L, Set.of(2L)));
+        directorCache.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testReload_LoadsDirectorsAndLinks() {
+        assertThat(directorCache.findAll()).extracting(Director::getName).containsExactly("Fincher", "Nolan", "Scott");
+        assertThat(directorCache.findById(1)).contains(new Director(1L, "Nolan"));
+        assertThat(directorCache.findById(99)).isEmpty();
+        assertThat(directorCache.findMissing(List.of(1L, 99L, 3L))).contains(99L);
+        Map<Long, List<Director>> directorsByFilm = directorCache.findDirectorsByFilmIds(List.of(10L, 12L));
+        assertThat(directorsByFilm).containsOnlyKeys(10L);
+        assertThat(directorsByFilm.get(10L)).extracting(Director::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testSetFilmDirectors_SkipsMissingDirectors() {
+        directorCache.setFilmDirectors(12, Set.of(3L, 99L));
+        directorCache.setFilmDirectors(10, Set.of(99L));
+
+        assertThat(directorCache.findDirectorIdsByFilm(12)).containsExactly(3L);
+        assertThat(directorCache.findDirectorIdsByFilm(10)).isEmpty();
+        assertThat(directorCache.findDirectors(List.of(3L, 99L, 1L))).extracting(Director::getId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void testRemove_DropsDirectorFromFilms() {
+        directorCache.remove(2);
+
+        assertThat(directorCache.exists(2)).isFalse();
+        assertThat(directorCache.findDirectorIdsByFilm(10)).containsExactly(1L);
+        assertThat(directorCache.findDirectorsByFilmIds(List.of(11L))).isEmpty();
+    }
+
+    @Test
+    void testPutAndRemoveFilm() {
+        directorCache.put(new Director(2L, "Ridley Scott"));
+        directorCache.put(new Director(4L, "Villeneuve"));
+        directorCache.removeFilm(11);
+
+        assertThat(directorCache.findById(2)).contains(new Director(2L, "Ridley Scott"));
+        assertThat(directorCache.exists(4)).isTrue();
+        assertThat(directorCache.findDirectorIdsByFilm(11)).isEmpty();
+    }
+
+    @Test
+    void testChanges_AppliedOnlyAfterCommit() {
+        Director director = new Director(4L, "Villeneuve");
+
+        TransactionSynchronizationManager.initSynchronization();
+        directorCache.put(director);
+        directorCache.setFilmDirectors(10, Set.of(3L));
+        director.setName("changed");
+
+        assertThat(directorCache.exists(4)).isFalse();
+        assertThat(directorCache.findDirectorIdsByFilm(10)).containsExactlyInAnyOrder(1L, 2L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(directorCache.findById(4)).contains(new Director(4L, "Villeneuve"));
+        assertThat(directorCache.findDirectorIdsByFilm(10)).containsExactly(3L);
+    }
+
+    @Test
+    void testChanges_DroppedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        directorCache.remove(1);
+        directorCache.removeFilm(11);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(directorCache.exists(1)).isTrue();
+        assertThat(directorCache.findDirectorIdsByFilm(11)).containsExactly(2L);
+    }
+}
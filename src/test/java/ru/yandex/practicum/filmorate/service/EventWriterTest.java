@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.enums.EventOperation;
+import ru.yandex.practicum.filmorate.model.enums.EventType;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class EventWriterTest {
+    private EventRepository eventRepository;
+    private FriendTimeline friendTimeline;
+    private EventWriter eventWriter;
+    // Фоновый поток переиспользует список пачки, поэтому запоминаем копии аргументов
+    private final List<List<Event>> writtenBatches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        friendTimeline = mock(FriendTimeline.class);
+        doAnswer(invocation -> writtenBatches.add(List.copyOf(invocation.getArgument(0))))
+                .when(eventRepository).addEvents(anyList());
+        eventWriter = new EventWriter(eventRepository, friendTimeline);
+        ReflectionTestUtils.setField(eventWriter, "async", true);
+        ReflectionTestUtils.setField(eventWriter, "queueCapacity", 1);
+        ReflectionTestUtils.setField(eventWriter, "batchSize", 1);
+        ReflectionTestUtils.setField(eventWriter, "maxDelayMs", 10L);
+        ReflectionTestUtils.setField(eventWriter, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(eventWriter, "flushTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventWriter.stop();
+    }
+
+    @Test
+    void testSyncMode_WritesInCallerThread() {
+        ReflectionTestUtils.setField(eventWriter, "async", false);
+        eventWriter.start();
+        Event single = event(1);
+        List<Event> batch = List.of(event(2), event(3));
+
+        eventWriter.add(single);
+        eventWriter.addAll(batch);
+
+        verify(eventRepository).addEvent(single);
+        verify(friendTimeline).publish(List.of(single));
+        assertThat(writtenBatches).containsExactly(batch);
+        verify(friendTimeline).publish(batch);
+        assertThat(eventWriter.stats().async()).isFalse();
+    }
+
+    @Test
+    void testAsyncMode_WritesInBackgroundAndFlushWaits() {
+        eventWriter.start();
+        Event first = event(1);
+        Event second = event(2);
+
+        eventWriter.add(first);
+        eventWriter.add(second);
+        eventWriter.flush();
+
+        assertThat(writtenBatches).containsExactly(List.of(first), List.of(second));
+        verify(eventRepository, never()).addEvent(any());
+        assertThat(eventWriter.stats().written()).isEqualTo(2);
+        assertThat(eventWriter.stats().writtenSynchronously()).isZero();
+    }
+
+    @Test
+    void testOverflow_WritesSynchronouslyWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Event first = event(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return writtenBatches.add(List.copyOf(invocation.getArgument(0)));
+        }).when(eventRepository).addEvents(anyList());
+        eventWriter.start();
+
+        // Фоновый поток занят первой пачкой, второе событие занимает единственное место в очереди
+        eventWriter.add(first);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        Event queued = event(2);
+        Event overflow = event(3);
+        eventWriter.add(queued);
+        eventWriter.add(overflow);
+
+        verify(eventRepository).addEvent(overflow);
+        verify(friendTimeline).publish(List.of(overflow));
+        assertThat(eventWriter.stats().writtenSynchronously()).isEqualTo(1);
+
+        release.countDown();
+        eventWriter.flush();
+
+        assertThat(writtenBatches).containsExactly(List.of(first), List.of(queued));
+        verify(eventRepository, never()).addEvent(queued);
+        assertThat(eventWriter.stats().written()).isEqualTo(2);
+    }
+
+    @Test
+    void testFailedBatch_RetriedOneByOne() {
+        ReflectionTestUtils.setField(eventWriter, "queueCapacity", 10);
+        ReflectionTestUtils.setField(eventWriter, "batchSize", 10);
+        Event good = event(1);
+        Event bad = event(2);
+        doThrow(new DataIntegrityViolationException("user")).when(eventRepository).addEvents(anyList());
+        doThrow(new DataIntegrityViolationException("user")).when(eventRepository).addEvent(bad);
+        eventWriter.start();
+
+        eventWriter.addAll(List.of(good, bad));
+        eventWriter.flush();
+
+        verify(eventRepository).addEvent(good);
+        verify(friendTimeline).publish(List.of(good));
+        verify(friendTimeline, never()).publish(List.of(bad));
+        assertThat(eventWriter.stats().failed()).isEqualTo(1);
+    }
+
+    @Test
+    void testUnexpectedError_CountedAsFailedAndWriterKeepsRunning() {
+        Event broken = event(1);
+        Event next = event(2);
+        doThrow(new InternalServerException("Не удалось сохранить данные")).doAnswer(invocation ->
+                        writtenBatches.add(List.copyOf(invocation.getArgument(0))))
+                .when(eventRepository).addEvents(anyList());
+        doThrow(new IllegalStateException("boom")).when(eventRepository).addEvent(broken);
+        eventWriter.start();
+
+        eventWriter.add(broken);
+        eventWriter.flush();
+        eventWriter.add(next);
+        eventWriter.flush();
+
+        assertThat(eventWriter.stats().failed()).isEqualTo(1);
+        assertThat(writtenBatches).containsExactly(List.of(next));
+        assertThat(eventWriter.stats().writtenSynchronously()).isZero();
+    }
+
+    private static Event event(long entityId) {
+        return Event.builder()
+                .timestamp(entityId)
+                .userId(1L)
+                .eventType(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(entityId)
+                .build();
+    }
+}
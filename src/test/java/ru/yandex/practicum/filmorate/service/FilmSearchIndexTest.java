@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSearchIndexTest {
+    private static final Set<String> BY_TITLE = Set.of("title");
+    private static final Set<String> BY_DIRECTOR = Set.of("director");
+    private static final Set<String> BY_TITLE_AND_DIRECTOR = Set.of("title", "director");
+
+    private FilmSearchIndex filmSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        DirectorRepository directorRepository = mock(DirectorRepository.class);
+        filmSearchIndex = new FilmSearchIndex(filmStorage, directorRepository);
+
+        when(filmStorage.getAll()).thenReturn(List.of(
+                film(1, "Крадущийся тигр", "Боевик о мастерах"),
+                film(2, "Тигры в снегу", "Драма"),
+                film(3, "Снег", "Мастер и ученик")));
+        when(directorRepository.findAll()).thenReturn(List.of(
+                new Director(1L, "Энг Ли"),
+                new Director(2L, "Роберто Бениньи")));
+        when(directorRepository.findAllDirectorIdsByFilm()).thenReturn(Map.of(1L, Set.of(1L), 2L, Set.of(2L)));
+        filmSearchIndex.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testSearch_MatchesSubstringIgnoringCase() {
+        assertThat(filmSearchIndex.search("ТИГР", BY_TITLE)).containsExactly(1L, 2L);
+        assertThat(filmSearchIndex.search("гры в", BY_TITLE)).containsExactly(2L);
+        assertThat(filmSearchIndex.search("мастер", Set.of("description"))).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void testSearch_RequiresWholeSubstringNotJustTrigrams() {
+        // Все триграммы "снегсн" встречаются в "снег", но целиком подстроки нет
+        assertThat(filmSearchIndex.search("снегсн", BY_TITLE)).isEmpty();
+        assertThat(filmSearchIndex.search("тигрица", BY_TITLE)).isEmpty();
+    }
+
+    @Test
+    void testSearch_ShortQueryScansAllTexts() {
+        assertThat(filmSearchIndex.search("сн", BY_TITLE)).containsExactly(2L, 3L);
+        assertThat(filmSearchIndex.search("", BY_TITLE)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void testSearch_ByDirectorAndUnionWithTitle() {
+        assertThat(filmSearchIndex.search("энг", BY_DIRECTOR)).containsExactly(1L);
+        assertThat(filmSearchIndex.search("ли", BY_DIRECTOR)).containsExactly(1L);
+        assertThat(filmSearchIndex.search("снег", BY_DIRECTOR)).isEmpty();
+        assertThat(filmSearchIndex.search("бен", BY_TITLE_AND_DIRECTOR)).containsExactly(2L);
+        assertThat(filmSearchIndex.search("снег", BY_TITLE_AND_DIRECTOR)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void testPutAndRemove_UpdateTitlesAndDirectors() {
+        filmSearchIndex.putFilm(3, "Жизнь прекрасна", "", Set.of(2L, 99L));
+        filmSearchIndex.putDirector(1, "Ким Ки Дук");
+
+        assertThat(filmSearchIndex.search("снег", BY_TITLE)).containsExactly(2L);
+        assertThat(filmSearchIndex.search("прекрас", BY_TITLE)).containsExactly(3L);
+        assertThat(filmSearchIndex.search("бенинь", BY_DIRECTOR)).containsExactly(2L, 3L);
+        assertThat(filmSearchIndex.search("энг", BY_DIRECTOR)).isEmpty();
+        assertThat(filmSearchIndex.search("ким", BY_DIRECTOR)).containsExactly(1L);
+
+        filmSearchIndex.removeDirector(2);
+        filmSearchIndex.removeFilm(1);
+
+        assertThat(filmSearchIndex.search("бенинь", BY_DIRECTOR)).isEmpty();
+        assertThat(filmSearchIndex.search("ким", BY_DIRECTOR)).isEmpty();
+        assertThat(filmSearchIndex.search("тигр", BY_TITLE)).containsExactly(2L);
+    }
+
+    @Test
+    void testChanges_AppliedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        filmSearchIndex.putFilm(4, "Тигр и дракон", "", Set.of());
+        filmSearchIndex.removeFilm(1);
+
+        assertThat(filmSearchIndex.search("тигр", BY_TITLE)).containsExactly(1L, 2L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(filmSearchIndex.search("тигр", BY_TITLE)).containsExactly(2L, 4L);
+    }
+
+    @Test
+    void testChanges_DroppedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        filmSearchIndex.putFilm(4, "Тигр и дракон", "", Set.of());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(filmSearchIndex.search("тигр", BY_TITLE)).containsExactly(1L, 2L);
+    }
+
+    private static Film film(long id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
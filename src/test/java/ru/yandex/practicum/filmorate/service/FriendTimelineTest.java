@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.EventRepository;
+import ru.yandex.practicum.filmorate.dao.repository.FriendRepository;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.enums.EventOperation;
+import ru.yandex.practicum.filmorate.model.enums.EventType;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FriendTimelineTest {
+    private static final Comparator<Event> NEWEST_FIRST = Comparator.comparingLong(Event::getTimestamp)
+            .thenComparingLong(Event::getEventId)
+            .reversed();
+
+    private EventRepository eventRepository;
+    private FriendRepository friendRepository;
+    private FriendTimeline friendTimeline;
+    // Журнал событий вместо БД: его читают заглушки EventRepository
+    private final List<Event> log = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        friendRepository = mock(FriendRepository.class);
+        friendTimeline = new FriendTimeline(eventRepository, friendRepository);
+        ReflectionTestUtils.setField(friendTimeline, "capacity", 3);
+        ReflectionTestUtils.setField(friendTimeline, "maxUsers", 10);
+        ReflectionTestUtils.setField(friendTimeline, "fanoutLimit", 1);
+
+        when(eventRepository.findLatestBefore(anyCollection(), any(), anyInt())).thenAnswer(invocation -> {
+            Collection<Long> authorIds = invocation.getArgument(0);
+            Event before = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return log.stream()
+                    .filter(event -> authorIds.contains(event.getUserId()))
+                    .filter(event -> before == null || NEWEST_FIRST.compare(event, before) > 0)
+                    .sorted(NEWEST_FIRST)
+                    .limit(limit)
+                    .toList();
+        });
+        when(eventRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return log.stream().filter(event -> ids.contains(event.getEventId())).toList();
+        });
+
+        // Пользователь 1 читает авторов 2 и 3; у автора 3 два подписчика - больше fanout-limit
+        when(friendRepository.findAllFriendIdsByUser()).thenReturn(Map.of(1L, Set.of(2L, 3L), 4L, Set.of(3L)));
+        friendTimeline.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGetPage_MergesFannedOutAndPulledAuthors() {
+        write(1, 2, 100);
+        write(2, 3, 200);
+        write(3, 5, 300);
+
+        assertThat(ids(friendTimeline.getPage(1, null, 3))).containsExactly(1L, 2L);
+
+        // Буфер заполнен одним запросом по разложенным авторам, автор 3 читается из БД отдельно
+        verify(eventRepository).findLatestBefore(eq(List.of(2L)), isNull(), eq(3));
+        verify(eventRepository).findLatestBefore(eq(List.of(3L)), isNull(), eq(3));
+        verify(eventRepository).findAllById(List.of(1L));
+    }
+
+    @Test
+    void testPublish_ServesNewEventsFromBuffer() {
+        write(1, 2, 100);
+        friendTimeline.getPage(1, null, 3);
+
+        Event fresh = write(2, 2, 200);
+        friendTimeline.publish(List.of(fresh));
+
+        assertThat(ids(friendTimeline.getPage(1, null, 3))).containsExactly(1L, 2L);
+        // Второе чтение буфера не заполняет его заново
+        verify(eventRepository, times(1)).findLatestBefore(eq(List.of(2L)), any(), anyInt());
+        verify(eventRepository, times(2)).findAllById(anyCollection());
+    }
+
+    @Test
+    void testGetPage_ReadsDeeperPagesFromDatabase() {
+        for (int i = 1; i <= 5; i++) {
+            write(i, 2, 100L * i);
+        }
+
+        List<Event> first = friendTimeline.getPage(1, null, 2);
+        assertThat(ids(first)).containsExactly(4L, 5L);
+
+        // Буфер держит 3 события из 5: страница перед событием 4 в него не помещается
+        assertThat(ids(friendTimeline.getPage(1, first.get(0), 2))).containsExactly(2L, 3L);
+        assertThat(ids(friendTimeline.getPage(1, log.get(1), 2))).containsExactly(1L);
+        verify(eventRepository).findLatestBefore(List.of(2L), log.get(1), 2);
+    }
+
+    @Test
+    void testFriendChanges_AppliedOnlyAfterCommit() {
+        write(1, 2, 100);
+        write(2, 5, 200);
+
+        TransactionSynchronizationManager.initSynchronization();
+        friendTimeline.addFriend(1, 5);
+        friendTimeline.removeFriend(1, 2);
+
+        assertThat(ids(friendTimeline.getPage(1, null, 10))).containsExactly(1L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(ids(friendTimeline.getPage(1, null, 10))).containsExactly(2L);
+    }
+
+    @Test
+    void testRemoveUser_DropsAuthorFromFollowers() {
+        write(1, 2, 100);
+        write(2, 3, 200);
+        friendTimeline.getPage(1, null, 3);
+
+        friendTimeline.removeUser(2);
+
+        assertThat(ids(friendTimeline.getPage(1, null, 3))).containsExactly(2L);
+    }
+
+    private Event write(long eventId, long userId, long timestamp) {
+        Event event = new Event(eventId, timestamp, userId, EventType.LIKE, EventOperation.ADD, eventId);
+        log.add(event);
+        return event;
+    }
+
+    private static List<Long> ids(List<Event> events) {
+        return events.stream().map(Event::getEventId).toList();
+    }
+}
@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityIndexTest {
+    private FilmStorage filmStorage;
+    private GenreRepository genreRepository;
+    private LikeRepository likeRepository;
+    private PopularityIndex popularityIndex;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = mock(FilmStorage.class);
+        genreRepository = mock(GenreRepository.class);
+        likeRepository = mock(LikeRepository.class);
+        popularityIndex = new PopularityIndex(filmStorage, genreRepository, likeRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testReload_RanksByLikesThenId() {
+        when(filmStorage.getAll()).thenReturn(List.of(
+                film(1, 2000), film(2, 2000), film(3, 2010), film(4, 2010)));
+        when(genreRepository.findAllGenreIdsByFilm()).thenReturn(Map.of(1L, Set.of(4L), 3L, Set.of(4L, 1L)));
+        when(likeRepository.countLikesByFilm()).thenReturn(Map.of(1L, 1L, 2L, 5L, 3L, 1L));
+
+        popularityIndex.reload();
+
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(2L, 1L, 3L, 4L);
+        assertThat(popularityIndex.getTopFilmIds(null, null, 2)).containsExactly(2L, 1L);
+        assertThat(popularityIndex.getTopFilmIds(4, null, 10)).containsExactly(1L, 3L);
+        assertThat(popularityIndex.getTopFilmIds(null, 2010, 10)).containsExactly(3L, 4L);
+        assertThat(popularityIndex.getTopFilmIds(4, 2010, 10)).containsExactly(3L);
+        assertThat(popularityIndex.getTopFilmIds(2, null, 10)).isEmpty();
+        assertThat(popularityIndex.getTopFilmIds(null, null, 0)).isEmpty();
+    }
+
+    @Test
+    void testChangeLikes_MovesFilmInEveryPartition() {
+        popularityIndex.putFilm(1, LocalDate.of(2000, 1, 1), Set.of(4L));
+        popularityIndex.putFilm(2, LocalDate.of(2000, 1, 1), Set.of(4L));
+
+        popularityIndex.changeLikes(2, 1);
+
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(2L, 1L);
+        assertThat(popularityIndex.getTopFilmIds(4, 2000, 10)).containsExactly(2L, 1L);
+        assertThat(popularityIndex.getLikesCount(2)).isEqualTo(1);
+
+        popularityIndex.changeLikes(2, -5);
+
+        assertThat(popularityIndex.getLikesCount(2)).isZero();
+        assertThat(popularityIndex.getTopFilmIds(4, null, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testPutFilm_KeepsLikesAndMovesPartitions() {
+        popularityIndex.putFilm(1, LocalDate.of(2000, 1, 1), Set.of(4L));
+        popularityIndex.changeLikes(1, 3);
+
+        popularityIndex.putFilm(1, LocalDate.of(2011, 1, 1), Set.of(2L));
+
+        assertThat(popularityIndex.getLikesCount(1)).isEqualTo(3);
+        assertThat(popularityIndex.getTopFilmIds(4, null, 10)).isEmpty();
+        assertThat(popularityIndex.getTopFilmIds(null, 2000, 10)).isEmpty();
+        assertThat(popularityIndex.getTopFilmIds(2, 2011, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void testRemoveFilm() {
+        popularityIndex.putFilm(1, LocalDate.of(2000, 1, 1), Set.of(4L));
+        popularityIndex.putFilm(2, null, null);
+
+        popularityIndex.removeFilm(1);
+        popularityIndex.changeLikes(1, 1);
+
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(2L);
+        assertThat(popularityIndex.getTopFilmIds(4, null, 10)).isEmpty();
+    }
+
+    @Test
+    void testRank_OrdersByPopularityAfterCursor() {
+        for (long filmId = 1; filmId <= 4; filmId++) {
+            popularityIndex.putFilm(filmId, LocalDate.of(2000, 1, 1), Set.of());
+        }
+        popularityIndex.changeLikes(3, 2);
+        popularityIndex.changeLikes(1, 1);
+
+        assertThat(popularityIndex.rank(List.of(1L, 2L, 3L, 4L), null, 10)).containsExactly(
+                new FilmRank(3, 2), new FilmRank(1, 1), new FilmRank(2, 0), new FilmRank(4, 0));
+        assertThat(popularityIndex.rank(List.of(1L, 2L, 3L, 4L), null, 2))
+                .containsExactly(new FilmRank(3, 2), new FilmRank(1, 1));
+        assertThat(popularityIndex.rank(List.of(1L, 2L, 3L, 4L), new FilmRank(1, 1), 10))
+                .containsExactly(new FilmRank(2, 0), new FilmRank(4, 0));
+        assertThat(popularityIndex.rank(List.of(2L, 4L), null, 10))
+                .containsExactly(new FilmRank(2, 0), new FilmRank(4, 0));
+    }
+
+    @Test
+    void testRank_CursorStableWhenAnchorLikesChange() {
+        for (long filmId = 1; filmId <= 4; filmId++) {
+            popularityIndex.putFilm(filmId, LocalDate.of(2000, 1, 1), Set.of());
+        }
+        popularityIndex.changeLikes(1, 3);
+        popularityIndex.changeLikes(2, 2);
+        popularityIndex.changeLikes(3, 1);
+
+        List<FilmRank> firstPage = popularityIndex.rank(List.of(1L, 2L, 3L, 4L), null, 2);
+        assertThat(firstPage).containsExactly(new FilmRank(1, 3), new FilmRank(2, 2));
+
+        // Последний фильм страницы набрал лайки - курсор хранит его прежнюю позицию,
+        // поэтому следующая страница ничего не пропускает и не повторяет
+        popularityIndex.changeLikes(2, 5);
+
+        assertThat(popularityIndex.rank(List.of(1L, 2L, 3L, 4L), firstPage.get(1), 2))
+                .containsExactly(new FilmRank(3, 1), new FilmRank(4, 0));
+    }
+
+    @Test
+    void testChanges_AppliedOnlyAfterCommit() {
+        popularityIndex.putFilm(1, LocalDate.of(2000, 1, 1), Set.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        popularityIndex.changeLikes(1, 1);
+        popularityIndex.putFilm(2, LocalDate.of(2000, 1, 1), Set.of());
+
+        assertThat(popularityIndex.getLikesCount(1)).isZero();
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(1L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(popularityIndex.getLikesCount(1)).isEqualTo(1);
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testChanges_DroppedOnRollback() {
+        popularityIndex.putFilm(1, LocalDate.of(2000, 1, 1), Set.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        popularityIndex.changeLikes(1, 1);
+        popularityIndex.putFilm(2, LocalDate.of(2000, 1, 1), Set.of());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(popularityIndex.getLikesCount(1)).isZero();
+        assertThat(popularityIndex.getTopFilmIds(null, null, 10)).containsExactly(1L);
+    }
+
+    private static Film film(long id, int year) {
+        Film film = new Film();
+        film.setId(id);
+        film.setReleaseDate(LocalDate.of(year, 6, 1));
+        return film;
+    }
+}
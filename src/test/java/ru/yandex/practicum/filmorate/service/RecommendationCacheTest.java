@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
+import ru.yandex.practicum.filmorate.service.RecommendationEngine.Recommendation;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RecommendationCacheTest {
+    private static final RecommendationQuery USER_1 = RecommendationQuery.nearest(1);
+
+    private RecommendationEngine recommendationEngine;
+    private RecommendationCache recommendationCache;
+
+    @BeforeEach
+    void setUp() {
+        recommendationEngine = mock(RecommendationEngine.class);
+        recommendationCache = new RecommendationCache(recommendationEngine);
+        ReflectionTestUtils.setField(recommendationCache, "maxSize", 2);
+        // Пользователь 1 лайкнул фильмы 1 и 2, сосед - пользователь 2
+        when(recommendationEngine.recommend(USER_1))
+                .thenReturn(new Recommendation(List.of(3L), Set.of(2L), new int[]{1, 2}));
+        when(recommendationEngine.recommend(argThat(query -> query.userId() != 1)))
+                .thenReturn(new Recommendation(List.of(), Set.of(), new int[0]));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGetFilmIds_ServesRepeatedQueryFromCache() {
+        assertThat(recommendationCache.getFilmIds(USER_1)).containsExactly(3L);
+        assertThat(recommendationCache.getFilmIds(USER_1)).containsExactly(3L);
+
+        verify(recommendationEngine, times(1)).recommend(USER_1);
+    }
+
+    @Test
+    void testOnLikeChanged_StalesOnlyDependentEntries() {
+        recommendationCache.getFilmIds(USER_1);
+
+        // Чужой пользователь и фильм, которого пользователь 1 не лайкал
+        recommendationCache.onLikeChanged(5, 7);
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(1)).recommend(USER_1);
+
+        // Лайк на фильм, который лайкнул пользователь 1, меняет его пересечение с другими
+        recommendationCache.onLikeChanged(5, 2);
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(2)).recommend(USER_1);
+
+        // Лайки соседа
+        recommendationCache.onLikeChanged(2, 9);
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(3)).recommend(USER_1);
+
+        // Собственные лайки
+        recommendationCache.onLikeChanged(1, 9);
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(4)).recommend(USER_1);
+    }
+
+    @Test
+    void testOnLikeRemoved_StalesKnnEntriesOfUsersSharingRemainingLikes() {
+        RecommendationQuery knn = RecommendationQuery.knn(1, SimilarityMetric.JACCARD, 5, 10);
+        when(recommendationEngine.recommend(knn))
+                .thenReturn(new Recommendation(List.of(3L), Set.of(2L), new int[]{1, 2}));
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(knn);
+
+        // Пользователь 5 снял лайк с фильма 7, которого пользователь 1 не лайкал; у них остался общий фильм 2
+        when(recommendationEngine.likesOf(5)).thenReturn(new int[]{2});
+        recommendationCache.onLikeRemoved(5, 7);
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(knn);
+
+        // Общие лайки в режиме ближайшего соседа не изменились, а сходство в kNN выросло
+        verify(recommendationEngine, times(1)).recommend(USER_1);
+        verify(recommendationEngine, times(2)).recommend(knn);
+    }
+
+    @Test
+    void testMarkStale_DoesNotProtectEntryFromEviction() {
+        RecommendationQuery user2 = RecommendationQuery.nearest(2);
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(user2);
+
+        recommendationCache.onLikeChanged(1, 9);
+        recommendationCache.getFilmIds(RecommendationQuery.nearest(3));
+
+        // Вытеснена давно не запрошенная устаревшая запись, а не последняя запрошенная
+        recommendationCache.getFilmIds(user2);
+        verify(recommendationEngine, times(1)).recommend(user2);
+    }
+
+    @Test
+    void testEviction_DropsLeastRecentlyUsedAndItsDependencies() {
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(RecommendationQuery.nearest(2));
+        recommendationCache.getFilmIds(RecommendationQuery.nearest(3));
+
+        assertThat(recommendationCache.size()).isEqualTo(2);
+
+        // Вытесненная запись считается заново и больше не зависит от старых индексов
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(2)).recommend(USER_1);
+        assertThat(recommendationCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testOnUserRemoved_DropsUsersEntries() {
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(RecommendationQuery.nearest(2));
+
+        recommendationCache.onUserRemoved(1);
+
+        assertThat(recommendationCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefreshHottest_RecomputesStaleEntries() {
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(RecommendationQuery.nearest(2));
+        recommendationCache.invalidateAll();
+
+        assertThat(recommendationCache.refreshHottest(10)).isEqualTo(2);
+        assertThat(recommendationCache.refreshHottest(10)).isZero();
+
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(2)).recommend(USER_1);
+    }
+
+    @Test
+    void testResultComputedDuringInvalidation_IsStoredStale() {
+        when(recommendationEngine.recommend(USER_1)).thenAnswer(invocation -> {
+            recommendationCache.onLikeChanged(1, 1);
+            return new Recommendation(List.of(3L), Set.of(2L), new int[]{1, 2});
+        });
+
+        recommendationCache.getFilmIds(USER_1);
+        recommendationCache.getFilmIds(USER_1);
+
+        verify(recommendationEngine, times(2)).recommend(USER_1);
+    }
+
+    @Test
+    void testInvalidation_AppliedOnlyAfterCommit() {
+        recommendationCache.getFilmIds(USER_1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        recommendationCache.onLikeChanged(1, 9);
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(1)).recommend(USER_1);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        recommendationCache.getFilmIds(USER_1);
+        verify(recommendationEngine, times(2)).recommend(any());
+    }
+}
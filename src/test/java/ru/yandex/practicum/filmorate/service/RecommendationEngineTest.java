@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.dao.repository.UserRepository;
+import ru.yandex.practicum.filmorate.model.enums.SimilarityMetric;
+import ru.yandex.practicum.filmorate.service.RecommendationEngine.Recommendation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationEngineTest {
+    private UserRepository userRepository;
+    private LikeRepository likeRepository;
+    private RecommendationEngine recommendationEngine;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        likeRepository = mock(LikeRepository.class);
+        recommendationEngine = new RecommendationEngine(userRepository, likeRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testNearest_PicksLargestOverlapAndSmallerIdOnTie() {
+        load(Map.of(
+                1L, List.of(1L, 2L, 3L),
+                2L, List.of(1L, 2L, 4L, 6L),
+                3L, List.of(1L, 2L, 5L),
+                4L, List.of(9L)));
+
+        Recommendation recommendation = recommendationEngine.recommend(RecommendationQuery.nearest(1));
+
+        assertThat(recommendation.neighbourIds()).containsExactly(2L);
+        assertThat(recommendation.filmIds()).containsExactly(4L, 6L);
+        assertThat(recommendation.likedByUser(3)).isTrue();
+        assertThat(recommendation.likedByUser(4)).isFalse();
+    }
+
+    @Test
+    void testNearest_UserWithoutLikesGetsNothing() {
+        load(Map.of(1L, List.of(), 2L, List.of(1L)));
+
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(1)).filmIds()).isEmpty();
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(99)).filmIds()).isEmpty();
+    }
+
+    @Test
+    void testKnn_SumsSimilaritiesAndOrdersTiesByFilmId() {
+        load(Map.of(
+                1L, List.of(1L, 2L),
+                2L, List.of(1L, 2L, 3L),
+                3L, List.of(1L, 6L, 5L, 4L),
+                4L, List.of(7L)));
+
+        Recommendation recommendation = recommendationEngine.recommend(
+                RecommendationQuery.knn(1, SimilarityMetric.JACCARD, 5, 10));
+
+        // Сосед 4 без общих лайков не учитывается
+        assertThat(recommendation.neighbourIds()).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(recommendation.filmIds()).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(recommendationEngine.recommend(RecommendationQuery.knn(1, SimilarityMetric.JACCARD, 5, 2))
+                .filmIds()).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void testKnn_MetricChangesNearestNeighbour() {
+        // Jaccard: 2 -> 2/8, 3 -> 1/3; cosine: оба по 0.5, при равенстве выигрывает меньший id
+        load(Map.of(
+                1L, List.of(1L, 2L),
+                2L, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L),
+                3L, List.of(1L, 9L)));
+
+        Recommendation jaccard = recommendationEngine.recommend(RecommendationQuery.knn(1, SimilarityMetric.JACCARD, 1, 10));
+        Recommendation cosine = recommendationEngine.recommend(RecommendationQuery.knn(1, SimilarityMetric.COSINE, 1, 10));
+
+        assertThat(jaccard.neighbourIds()).containsExactly(3L);
+        assertThat(jaccard.filmIds()).containsExactly(9L);
+        assertThat(cosine.neighbourIds()).containsExactly(2L);
+        assertThat(cosine.filmIds()).containsExactly(3L, 4L, 5L, 6L, 7L, 8L);
+    }
+
+    @Test
+    void testWrites_ChangeRecommendations() {
+        load(Map.of(1L, List.of(1L), 2L, List.of(1L, 2L, 3L)));
+
+        recommendationEngine.addLike(1, 2);
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(1)).filmIds()).containsExactly(3L);
+
+        recommendationEngine.removeFilm(3);
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(1)).filmIds()).isEmpty();
+
+        recommendationEngine.removeLike(1, 2);
+        recommendationEngine.addUser(3);
+        recommendationEngine.addLike(3, 1);
+        recommendationEngine.addLike(3, 5);
+        recommendationEngine.removeUser(2);
+        Recommendation recommendation = recommendationEngine.recommend(RecommendationQuery.nearest(1));
+        assertThat(recommendation.neighbourIds()).containsExactly(3L);
+        assertThat(recommendation.filmIds()).containsExactly(5L);
+    }
+
+    @Test
+    void testWrites_AppliedOnlyAfterCommit() {
+        load(Map.of(1L, List.of(1L), 2L, List.of(1L, 2L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        recommendationEngine.addLike(1, 2);
+
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(1)).filmIds()).containsExactly(2L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(recommendationEngine.recommend(RecommendationQuery.nearest(1)).filmIds()).isEmpty();
+    }
+
+    private void load(Map<Long, List<Long>> likes) {
+        when(userRepository.getAllIds()).thenReturn(new ArrayList<>(likes.keySet()));
+        when(likeRepository.findAllFilmIdsByUser()).thenReturn(new HashMap<>(likes));
+        recommendationEngine.reload();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dao.dto.genre.GenreDto;
+import ru.yandex.practicum.filmorate.dao.dto.mpa.MpaDto;
+import ru.yandex.practicum.filmorate.dao.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.dao.repository.MpaRepository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTest {
+    private MpaRepository mpaRepository;
+    private GenreRepository genreRepository;
+    private ReferenceDataCache referenceDataCache;
+
+    @BeforeEach
+    void setUp() {
+        mpaRepository = mock(MpaRepository.class);
+        genreRepository = mock(GenreRepository.class);
+        referenceDataCache = new ReferenceDataCache(mpaRepository, genreRepository);
+
+        when(mpaRepository.findAll()).thenReturn(List.of(mpa(1, "G"), mpa(3, "PG-13")));
+        when(genreRepository.findAll()).thenReturn(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия")));
+        referenceDataCache.reload();
+    }
+
+    @Test
+    void testLookup_FindsByIdWithGapsAndOutOfRange() {
+        assertThat(referenceDataCache.findMpa(3)).map(MpaDto::getName).contains("PG-13");
+        assertThat(referenceDataCache.mpaExists(1)).isTrue();
+        assertThat(referenceDataCache.mpaExists(2)).isFalse();
+        assertThat(referenceDataCache.findMpa(0)).isEmpty();
+        assertThat(referenceDataCache.findMpa(-1)).isEmpty();
+        assertThat(referenceDataCache.findMpa(99)).isEmpty();
+
+        assertThat(referenceDataCache.findGenre(2)).map(GenreDto::getName).contains("Драма");
+        assertThat(referenceDataCache.genreExists(3)).isFalse();
+    }
+
+    @Test
+    void testGetAll_KeepsRepositoryOrder() {
+        assertThat(referenceDataCache.getAllMpa()).extracting(MpaDto::getId).containsExactly(1L, 3L);
+        assertThat(referenceDataCache.getAllGenres()).extracting(GenreDto::getId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void testReturnedDtos_DoNotChangeCache() {
+        referenceDataCache.findMpa(1).orElseThrow().setName("changed");
+        referenceDataCache.getAllGenres().get(0).setName("changed");
+
+        assertThat(referenceDataCache.findMpa(1)).map(MpaDto::getName).contains("G");
+        assertThat(referenceDataCache.findGenre(2)).map(GenreDto::getName).contains("Драма");
+    }
+
+    @Test
+    void testReload_ReplacesSnapshot() {
+        when(mpaRepository.findAll()).thenReturn(List.of(mpa(2, "PG")));
+        when(genreRepository.findAll()).thenReturn(List.of());
+
+        referenceDataCache.reload();
+
+        assertThat(referenceDataCache.mpaExists(1)).isFalse();
+        assertThat(referenceDataCache.mpaExists(2)).isTrue();
+        assertThat(referenceDataCache.getAllGenres()).isEmpty();
+        assertThat(referenceDataCache.genreExists(1)).isFalse();
+    }
+
+    private static MpaRating mpa(long id, String name) {
+        MpaRating rating = new MpaRating();
+        rating.setId(id);
+        rating.setName(name);
+        return rating;
+    }
+}
@@ -0,0 +1,231 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.repository.ReviewLikeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class ReviewUsefulCounterTest {
+    private ReviewLikeRepository reviewLikeRepository;
+    private ReviewUsefulCounter reviewUsefulCounter;
+    // Итог записей в reviews.useful по отзывам
+    private final Map<Long, Long> written = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        reviewLikeRepository = mock(ReviewLikeRepository.class);
+        reviewUsefulCounter = new ReviewUsefulCounter(reviewLikeRepository);
+        ReflectionTestUtils.setField(reviewUsefulCounter, "writeBehind", true);
+        doAnswer(invocation -> {
+            Map<Long, Long> deltas = invocation.getArgument(0);
+            deltas.forEach((reviewId, delta) -> written.merge(reviewId, delta, Long::sum));
+            return null;
+        }).when(reviewLikeRepository).incrementReviewUsefulAll(anyMap());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testWithoutWriteBehind_WritesImmediately() {
+        ReflectionTestUtils.setField(reviewUsefulCounter, "writeBehind", false);
+
+        reviewUsefulCounter.add(1, 2);
+
+        verify(reviewLikeRepository).incrementReviewUseful(1L, 2);
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isZero();
+    }
+
+    @Test
+    void testFlush_WritesPendingDeltasOnce() {
+        reviewUsefulCounter.add(1, 1);
+        reviewUsefulCounter.add(1, 1);
+        reviewUsefulCounter.add(2, -1);
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isEqualTo(2);
+
+        reviewUsefulCounter.flush();
+        reviewUsefulCounter.flush();
+
+        assertThat(written).containsOnly(Map.entry(1L, 2L), Map.entry(2L, -1L));
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isZero();
+    }
+
+    @Test
+    void testFlush_RemovesIdleCountersAndKeepsLaterReactions() {
+        reviewUsefulCounter.add(1, 1);
+        reviewUsefulCounter.flush();
+        reviewUsefulCounter.flush();
+        reviewUsefulCounter.flush();
+        assertThat(pendingSize()).isZero();
+
+        reviewUsefulCounter.add(1, -1);
+        reviewUsefulCounter.flush();
+
+        assertThat(written).containsEntry(1L, 0L);
+    }
+
+    @Test
+    void testAdd_AppliedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        reviewUsefulCounter.add(1, 1);
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isZero();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isEqualTo(1);
+    }
+
+    @Test
+    void testReconcile_WaitsForReactionBetweenCommitAndCounter() throws Exception {
+        // Реакция зафиксирована в review_likes, но её разница ещё не попала в счётчик
+        TransactionSynchronizationManager.initSynchronization();
+        reviewUsefulCounter.add(1, 1);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(sync -> sync.beforeCommit(false));
+
+        List<Long> flushedBeforeRecalculation = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reconciled = executor.submit(() -> reviewUsefulCounter.reconcile(() -> {
+                flushedBeforeRecalculation.add(written.getOrDefault(1L, 0L));
+                return 0;
+            }));
+            Thread.sleep(100);
+            assertThat(reconciled).isNotDone();
+
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            reconciled.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Разница сброшена до пересчёта и не останется в памяти, чтобы прибавиться к нему ещё раз
+        assertThat(flushedBeforeRecalculation).containsExactly(1L);
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isZero();
+    }
+
+    @Test
+    void testReconcile_ReactionCommittedDuringRecalculationStaysPending() throws Exception {
+        CountDownLatch recalculating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> reconciled = executor.submit(() -> reviewUsefulCounter.reconcile(() -> {
+                recalculating.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }));
+            assertThat(recalculating.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?> reaction = executor.submit(() -> reviewUsefulCounter.add(1, 1));
+            Thread.sleep(100);
+            assertThat(reaction).isNotDone();
+
+            release.countDown();
+            reconciled.get(5, TimeUnit.SECONDS);
+            reaction.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Пересчёт реакцию не видел, её разница остаётся до следующего сброса
+        assertThat(reviewUsefulCounter.pendingDelta(1)).isEqualTo(1);
+        assertThat(written).doesNotContainKey(1L);
+    }
+
+    @Test
+    void testConcurrentAddsAndFlushes_LoseNoReactions() throws Exception {
+        int threads = 4;
+        int addsPerThread = 20_000;
+        runWithContinuousFlushes(threads, () -> {
+            for (int i = 0; i < addsPerThread; i++) {
+                reviewUsefulCounter.add(i % 50, 1);
+            }
+        });
+
+        long total = written.values().stream().mapToLong(Long::longValue).sum();
+        assertThat(total).isEqualTo((long) threads * addsPerThread);
+    }
+
+    @Test
+    void testConcurrentCancellingAddsAndFlushes_LoseNoReactions() throws Exception {
+        int threads = 4;
+        // Лайк и его отмена оставляют нулевую разницу, и счётчик удаляется, пока в него ещё пишут
+        runWithContinuousFlushes(threads, () -> {
+            for (int i = 0; i < 20_000; i++) {
+                reviewUsefulCounter.add(i % 50, 1);
+                reviewUsefulCounter.add(i % 50, -1);
+            }
+            reviewUsefulCounter.add(7, 1);
+        });
+
+        long total = written.values().stream().mapToLong(Long::longValue).sum();
+        assertThat(total).isEqualTo(threads);
+        assertThat(written.get(7L)).isEqualTo(threads);
+    }
+
+    // Сбросы идут непрерывно, поэтому счётчики редких отзывов постоянно простаивают и удаляются
+    private void runWithContinuousFlushes(int threads, Runnable adds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean adding = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                start.await();
+                while (adding.get()) {
+                    reviewUsefulCounter.flush();
+                }
+                return null;
+            });
+            List<Future<?>> adders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                adders.add(executor.submit(() -> {
+                    start.await();
+                    adds.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> adder : adders) {
+                adder.get(30, TimeUnit.SECONDS);
+            }
+            adding.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        reviewUsefulCounter.flush();
+    }
+
+    private int pendingSize() {
+        Map<?, ?> pending = (Map<?, ?>) ReflectionTestUtils.getField(reviewUsefulCounter, "pending");
+        return pending.size();
+    }
+}